@@ -0,0 +1,69 @@
+package io.github.avew.oya.config;
+
+import com.theokanning.openai.completion.chat.ChatMessage;
+import com.theokanning.openai.completion.chat.ChatMessageRole;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Compact binary encoding for chat history entries: a format byte, a role byte and the UTF-8 content.
+ * Entries in any other format (e.g. legacy JSON) deserialize to {@code null} and are skipped by readers.
+ */
+public class ChatMessageRedisSerializer implements RedisSerializer<ChatMessage> {
+
+    private static final byte FORMAT_VERSION = 1;
+    private static final int HEADER_LENGTH = 2;
+
+    private static final byte ROLE_SYSTEM = 0;
+    private static final byte ROLE_USER = 1;
+    private static final byte ROLE_ASSISTANT = 2;
+
+    @Override
+    public byte[] serialize(ChatMessage message) throws SerializationException {
+        if (message == null) {
+            return new byte[0];
+        }
+        byte[] content = message.getContent() == null
+                ? new byte[0]
+                : message.getContent().getBytes(StandardCharsets.UTF_8);
+
+        byte[] bytes = new byte[HEADER_LENGTH + content.length];
+        bytes[0] = FORMAT_VERSION;
+        bytes[1] = roleCode(message.getRole());
+        System.arraycopy(content, 0, bytes, HEADER_LENGTH, content.length);
+        return bytes;
+    }
+
+    @Override
+    public ChatMessage deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length < HEADER_LENGTH || bytes[0] != FORMAT_VERSION) {
+            return null;
+        }
+        String content = new String(bytes, HEADER_LENGTH, bytes.length - HEADER_LENGTH, StandardCharsets.UTF_8);
+        return new ChatMessage(roleName(bytes[1]), content);
+    }
+
+    private static byte roleCode(String role) {
+        if (ChatMessageRole.SYSTEM.value().equals(role)) {
+            return ROLE_SYSTEM;
+        }
+        if (ChatMessageRole.USER.value().equals(role)) {
+            return ROLE_USER;
+        }
+        if (ChatMessageRole.ASSISTANT.value().equals(role)) {
+            return ROLE_ASSISTANT;
+        }
+        throw new SerializationException("Unsupported chat message role: " + role);
+    }
+
+    private static String roleName(byte code) {
+        return switch (code) {
+            case ROLE_SYSTEM -> ChatMessageRole.SYSTEM.value();
+            case ROLE_USER -> ChatMessageRole.USER.value();
+            case ROLE_ASSISTANT -> ChatMessageRole.ASSISTANT.value();
+            default -> throw new SerializationException("Unknown chat message role code: " + code);
+        };
+    }
+}
@@ -0,0 +1,20 @@
+package io.github.avew.oya.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@Configuration
+public class ConcurrencyConfig {
+
+    /**
+     * Executor for blocking fan-out work (Redis, JDBC, OpenAI calls) and background jobs.
+     * One virtual thread per task, so blocking I/O never pins a platform thread.
+     */
+    @Bean(destroyMethod = "close")
+    public ExecutorService virtualThreadExecutor() {
+        return Executors.newVirtualThreadPerTaskExecutor();
+    }
+}
@@ -1,5 +1,6 @@
 package io.github.avew.oya.config;
 
+import com.theokanning.openai.completion.chat.ChatMessage;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
@@ -26,4 +27,19 @@ public class RedisConfig {
         template.afterPropertiesSet();
         return template;
     }
+
+    @Bean
+    public RedisTemplate<String, ChatMessage> chatMessageRedisTemplate(RedisConnectionFactory connectionFactory) {
+        RedisTemplate<String, ChatMessage> template = new RedisTemplate<>();
+        template.setConnectionFactory(connectionFactory);
+
+        // Use String serializer for keys
+        template.setKeySerializer(new StringRedisSerializer());
+
+        // Use compact binary serializer for chat history entries
+        template.setValueSerializer(new ChatMessageRedisSerializer());
+
+        template.afterPropertiesSet();
+        return template;
+    }
 }
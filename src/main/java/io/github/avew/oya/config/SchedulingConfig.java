@@ -0,0 +1,12 @@
+package io.github.avew.oya.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Enables background maintenance jobs ({@code @Scheduled} methods)
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
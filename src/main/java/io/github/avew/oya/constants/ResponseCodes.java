@@ -16,6 +16,9 @@ public final class ResponseCodes {
         public static final String FILENAME_NULL = "FILE_ERROR_0002";
         public static final String SIZE_EXCEEDED = "FILE_ERROR_0003";
         public static final String UNSUPPORTED_TYPE = "FILE_ERROR_0004";
+        public static final String PART_SIZE_MISMATCH = "FILE_ERROR_0005";
+        public static final String INVALID_PART = "FILE_ERROR_0006";
+        public static final String UPLOAD_INCOMPLETE = "FILE_ERROR_0007";
     }
 
     // Document Error Codes
@@ -25,6 +28,9 @@ public final class ResponseCodes {
         public static final String UPLOAD_FAILED = "DOCUMENT_ERROR_0003";
         public static final String CHUNKS_RETRIEVAL_FAILED = "DOCUMENT_ERROR_0004";
         public static final String SEARCH_FAILED = "DOCUMENT_ERROR_0005";
+        public static final String STILL_PROCESSING = "DOCUMENT_ERROR_0006";
+        public static final String UPLOAD_SESSION_NOT_FOUND = "DOCUMENT_ERROR_0007";
+        public static final String NEWER_VERSION_EXISTS = "DOCUMENT_ERROR_0008";
     }
 
     // Document Success Codes
@@ -35,24 +41,37 @@ public final class ResponseCodes {
         public static final String SEARCH_COMPLETED = "DOCUMENT_SUCCESS_0004";
         public static final String CHUNKS_RETRIEVED = "DOCUMENT_SUCCESS_0005";
         public static final String DOCUMENTS_FILTERED = "DOCUMENT_SUCCESS_0006";
+        public static final String DOCUMENT_DELETED = "DOCUMENT_SUCCESS_0007";
+        public static final String REPROCESSING_STARTED = "DOCUMENT_SUCCESS_0008";
+        public static final String UPLOAD_INITIATED = "DOCUMENT_SUCCESS_0009";
+        public static final String PART_UPLOADED = "DOCUMENT_SUCCESS_0010";
+        public static final String UPLOAD_STATUS_RETRIEVED = "DOCUMENT_SUCCESS_0011";
+        public static final String UPLOAD_ABORTED = "DOCUMENT_SUCCESS_0012";
+        public static final String VERSION_UPLOADED = "DOCUMENT_SUCCESS_0013";
     }
 
     // Chat Error Codes
     public static final class ChatError {
         public static final String PROCESSING_FAILED = "CHAT_ERROR_0001";
         public static final String OPENAI_NOT_CONFIGURED = "CHAT_ERROR_0002";
+        public static final String TOO_MANY_REQUESTS = "CHAT_ERROR_0003";
+        public static final String CAPACITY_EXCEEDED = "CHAT_ERROR_0004";
     }
 
     // Chat Success Codes
     public static final class ChatSuccess {
         public static final String RESPONSE_GENERATED = "CHAT_SUCCESS_0001";
         public static final String SERVICE_HEALTHY = "CHAT_SUCCESS_0002";
+        public static final String HISTORY_RETRIEVED = "CHAT_SUCCESS_0003";
     }
 
     // Validation Error Codes
     public static final class ValidationError {
         public static final String VALIDATION_FAILED = "VALIDATION_ERROR_0001";
         public static final String INVALID_STATUS = "VALIDATION_ERROR_0002";
+        public static final String INVALID_NAMESPACE = "VALIDATION_ERROR_0003";
+        public static final String INVALID_CURSOR = "VALIDATION_ERROR_0004";
+        public static final String INVALID_IMPORT_PATH = "VALIDATION_ERROR_0005";
     }
 
     // System Error Codes
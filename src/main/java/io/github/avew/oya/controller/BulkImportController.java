@@ -0,0 +1,89 @@
+package io.github.avew.oya.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.avew.oya.dto.DirectoryImportRequest;
+import io.github.avew.oya.dto.ImportResult;
+import io.github.avew.oya.service.BulkImportService;
+import io.github.avew.oya.service.DocumentService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Bulk corpus import. Both endpoints stream one NDJSON ImportResult per file as files finish (out of order).
+ */
+@RestController
+@RequestMapping("/api/v1/documents/import")
+@RequiredArgsConstructor
+@Slf4j
+public class BulkImportController {
+
+    private final BulkImportService bulkImportService;
+    private final DocumentService documentService;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * The archive is the raw request body (not multipart), so its size is not bound by the upload limit
+     */
+    @PostMapping(consumes = {BulkImportService.ZIP, BulkImportService.TAR, BulkImportService.TAR_GZ},
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> importArchive(
+            @RequestHeader("Content-Type") MediaType contentType,
+            @RequestParam(required = false) String namespace,
+            HttpServletRequest request) {
+        // Validated before the response starts streaming
+        String documentNamespace = documentService.resolveNamespace(namespace);
+        String archiveType = contentType.getType() + "/" + contentType.getSubtype();
+        log.info("Received bulk import archive ({}) for namespace: {}", archiveType, documentNamespace);
+
+        StreamingResponseBody body = outputStream -> bulkImportService.importArchive(
+                request.getInputStream(), archiveType, documentNamespace, ndjsonSink(outputStream));
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    @PostMapping(value = "/directory", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> importDirectory(@Valid @RequestBody DirectoryImportRequest request) {
+        String documentNamespace = documentService.resolveNamespace(request.getNamespace());
+        Path directory = bulkImportService.resolveImportDirectory(request.getPath());
+        log.info("Received bulk import of directory {} for namespace: {}", directory, documentNamespace);
+
+        StreamingResponseBody body = outputStream ->
+                bulkImportService.importDirectory(directory, documentNamespace, ndjsonSink(outputStream));
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    private Consumer<ImportResult> ndjsonSink(OutputStream outputStream) {
+        // Results arrive from several threads; a lock (not synchronized) avoids pinning virtual threads
+        ReentrantLock lock = new ReentrantLock();
+        return result -> {
+            lock.lock();
+            try {
+                outputStream.write(objectMapper.writeValueAsBytes(result));
+                outputStream.write('\n');
+                outputStream.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                lock.unlock();
+            }
+        };
+    }
+}
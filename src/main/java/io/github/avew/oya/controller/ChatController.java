@@ -1,17 +1,30 @@
 package io.github.avew.oya.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.github.avew.oya.constants.ResponseCodes;
 import io.github.avew.oya.dto.ApiResponse;
+import io.github.avew.oya.dto.BatchChatRequest;
 import io.github.avew.oya.dto.ChatRequest;
 import io.github.avew.oya.dto.ChatResponse;
+import io.github.avew.oya.dto.CursorPage;
+import io.github.avew.oya.entity.ChatHistory;
 import io.github.avew.oya.exception.ChatProcessingException;
+import io.github.avew.oya.service.ChatConcurrencyGuard;
+import io.github.avew.oya.service.ChatHistoryService;
 import io.github.avew.oya.service.ChatService;
 import io.github.avew.oya.service.MessageService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.locks.ReentrantLock;
 
 @RestController
 @RequestMapping("/api/v1/chat")
@@ -20,7 +33,9 @@ import org.springframework.web.bind.annotation.*;
 public class ChatController {
 
     private final ChatService chatService;
+    private final ChatHistoryService chatHistoryService;
     private final MessageService messageService;
+    private final ObjectMapper objectMapper;
 
     @PostMapping
     public ResponseEntity<ApiResponse<ChatResponse>> chat(@Valid @RequestBody ChatRequest request) {
@@ -36,6 +51,58 @@ public class ChatController {
         return ResponseEntity.ok(response);
     }
 
+    @PostMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamChat(@Valid @RequestBody ChatRequest request) {
+        log.info("Received streaming chat request from user: {}", request.getUserId());
+        return chatService.streamChat(request);
+    }
+
+    /**
+     * Answer a list of questions, streaming one JSON result per line (NDJSON) as each completes
+     */
+    @PostMapping(value = "/batch", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> chatBatch(@Valid @RequestBody BatchChatRequest request) {
+        log.info("Received batch chat request from user: {}, questions: {}",
+                request.getUserId(), request.getQuestions().size());
+
+        // Reserved before the response starts so an over-limit user is rejected with a proper error response
+        ChatConcurrencyGuard.Permit permit = chatService.reserveBatch(request.getUserId());
+        StreamingResponseBody body = outputStream -> {
+            // Results arrive from several threads; a lock (not synchronized) avoids pinning virtual threads
+            ReentrantLock lock = new ReentrantLock();
+            chatService.chatBatch(request, permit, result -> {
+                lock.lock();
+                try {
+                    outputStream.write(objectMapper.writeValueAsBytes(result));
+                    outputStream.write('\n');
+                    outputStream.flush();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                } finally {
+                    lock.unlock();
+                }
+            });
+        };
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    @GetMapping("/history")
+    public ResponseEntity<ApiResponse<CursorPage<ChatHistory>>> getHistory(
+            @RequestParam String userId,
+            @RequestParam(defaultValue = "20") int limit,
+            @RequestParam(required = false) String cursor) {
+        CursorPage<ChatHistory> page = chatHistoryService.getHistory(userId, limit, cursor);
+        ApiResponse<CursorPage<ChatHistory>> response = ApiResponse.success(
+            ResponseCodes.ChatSuccess.HISTORY_RETRIEVED,
+            messageService.getMessage(ResponseCodes.ChatSuccess.HISTORY_RETRIEVED),
+            page
+        );
+        return ResponseEntity.ok(response);
+    }
+
     @GetMapping("/health")
     public ResponseEntity<ApiResponse<String>> health() {
         ApiResponse<String> response = ApiResponse.success(
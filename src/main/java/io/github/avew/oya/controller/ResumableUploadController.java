@@ -0,0 +1,94 @@
+package io.github.avew.oya.controller;
+
+import io.github.avew.oya.constants.ResponseCodes;
+import io.github.avew.oya.dto.ApiResponse;
+import io.github.avew.oya.dto.UploadInitRequest;
+import io.github.avew.oya.dto.UploadStatus;
+import io.github.avew.oya.entity.Document;
+import io.github.avew.oya.service.MessageService;
+import io.github.avew.oya.service.ResumableUploadService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.util.UUID;
+
+/**
+ * Resumable uploads for large files: initiate, PUT parts (in any order, in parallel), then complete
+ */
+@RestController
+@RequestMapping("/api/v1/documents/uploads")
+@RequiredArgsConstructor
+@Slf4j
+public class ResumableUploadController {
+
+    private final ResumableUploadService resumableUploadService;
+    private final MessageService messageService;
+
+    @PostMapping
+    public ResponseEntity<ApiResponse<UploadStatus>> initiateUpload(@Valid @RequestBody UploadInitRequest request)
+            throws IOException {
+        UploadStatus status = resumableUploadService.initiate(request);
+        ApiResponse<UploadStatus> response = ApiResponse.success(
+            ResponseCodes.DocumentSuccess.UPLOAD_INITIATED,
+            messageService.getMessage(ResponseCodes.DocumentSuccess.UPLOAD_INITIATED),
+            status
+        );
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Raw part bytes as the request body, streamed straight to the part's offset on disk
+     */
+    @PutMapping(value = "/{uploadId}/parts/{partNumber}", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<ApiResponse<UploadStatus>> uploadPart(
+            @PathVariable UUID uploadId,
+            @PathVariable int partNumber,
+            HttpServletRequest request) throws IOException {
+        UploadStatus status = resumableUploadService.writePart(uploadId, partNumber, request.getInputStream());
+        ApiResponse<UploadStatus> response = ApiResponse.success(
+            ResponseCodes.DocumentSuccess.PART_UPLOADED,
+            messageService.getMessage(ResponseCodes.DocumentSuccess.PART_UPLOADED),
+            status
+        );
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/{uploadId}")
+    public ResponseEntity<ApiResponse<UploadStatus>> getUploadStatus(@PathVariable UUID uploadId) {
+        UploadStatus status = resumableUploadService.getStatus(uploadId);
+        ApiResponse<UploadStatus> response = ApiResponse.success(
+            ResponseCodes.DocumentSuccess.UPLOAD_STATUS_RETRIEVED,
+            messageService.getMessage(ResponseCodes.DocumentSuccess.UPLOAD_STATUS_RETRIEVED),
+            status
+        );
+        return ResponseEntity.ok(response);
+    }
+
+    @PostMapping("/{uploadId}/complete")
+    public ResponseEntity<ApiResponse<Document>> completeUpload(@PathVariable UUID uploadId) throws IOException {
+        Document document = resumableUploadService.complete(uploadId);
+        ApiResponse<Document> response = ApiResponse.success(
+            ResponseCodes.DocumentSuccess.FILE_UPLOADED,
+            messageService.getMessage(ResponseCodes.DocumentSuccess.FILE_UPLOADED),
+            document
+        );
+        return ResponseEntity.ok(response);
+    }
+
+    @DeleteMapping("/{uploadId}")
+    public ResponseEntity<ApiResponse<Void>> abortUpload(@PathVariable UUID uploadId) throws IOException {
+        resumableUploadService.abort(uploadId);
+        ApiResponse<Void> response = ApiResponse.success(
+            ResponseCodes.DocumentSuccess.UPLOAD_ABORTED,
+            messageService.getMessage(ResponseCodes.DocumentSuccess.UPLOAD_ABORTED),
+            null
+        );
+        return ResponseEntity.ok(response);
+    }
+}
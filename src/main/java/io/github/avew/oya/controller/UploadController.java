@@ -1,19 +1,25 @@
 package io.github.avew.oya.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.github.avew.oya.constants.ResponseCodes;
 import io.github.avew.oya.dto.ApiResponse;
+import io.github.avew.oya.dto.CursorPage;
+import io.github.avew.oya.dto.DocumentSearchHit;
+import io.github.avew.oya.dto.DocumentSummary;
 import io.github.avew.oya.entity.Document;
-import io.github.avew.oya.entity.DocumentChunk;
 import io.github.avew.oya.exception.DocumentNotFoundException;
 import io.github.avew.oya.service.DocumentService;
 import io.github.avew.oya.service.MessageService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -27,15 +33,19 @@ public class UploadController {
 
     private final DocumentService documentService;
     private final MessageService messageService;
+    private final ObjectMapper objectMapper;
 
     @PostMapping(consumes = "multipart/form-data")
-    public ResponseEntity<ApiResponse<Map<String, Object>>> uploadDocument(@RequestParam("file") MultipartFile file) throws IOException {
-        Document document = documentService.storeFile(file);
+    public ResponseEntity<ApiResponse<Map<String, Object>>> uploadDocument(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam(required = false) String namespace) throws IOException {
+        Document document = documentService.storeFile(file, namespace);
 
         Map<String, Object> documentData = Map.of(
             "id", document.getId(),
             "filename", document.getFilename(),
             "contentType", document.getContentType(),
+            "namespace", document.getNamespace(),
             "fileSize", document.getFileSize(),
             "status", document.getStatus().name(),
             "createdAt", document.getCreatedAt()
@@ -51,12 +61,16 @@ public class UploadController {
     }
 
     @GetMapping
-    public ResponseEntity<ApiResponse<List<Document>>> getAllDocuments() {
-        List<Document> documents = documentService.getAllDocuments();
-        ApiResponse<List<Document>> response = ApiResponse.success(
+    public ResponseEntity<ApiResponse<CursorPage<DocumentSummary>>> listDocuments(
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) String namespace,
+            @RequestParam(defaultValue = "20") int limit,
+            @RequestParam(required = false) String cursor) {
+        CursorPage<DocumentSummary> page = documentService.listDocuments(status, namespace, limit, cursor);
+        ApiResponse<CursorPage<DocumentSummary>> response = ApiResponse.success(
             ResponseCodes.DocumentSuccess.DOCUMENTS_RETRIEVED,
             messageService.getMessage(ResponseCodes.DocumentSuccess.DOCUMENTS_RETRIEVED),
-            documents
+            page
         );
         return ResponseEntity.ok(response);
     }
@@ -76,28 +90,86 @@ public class UploadController {
         }
     }
 
+    @DeleteMapping("/{id}")
+    public ResponseEntity<ApiResponse<Void>> deleteDocument(@PathVariable UUID id) {
+        documentService.deleteDocument(id);
+        ApiResponse<Void> response = ApiResponse.success(
+            ResponseCodes.DocumentSuccess.DOCUMENT_DELETED,
+            messageService.getMessage(ResponseCodes.DocumentSuccess.DOCUMENT_DELETED),
+            null
+        );
+        return ResponseEntity.ok(response);
+    }
+
+    @PostMapping("/{id}/reprocess")
+    public ResponseEntity<ApiResponse<Document>> reprocessDocument(@PathVariable UUID id) {
+        Document document = documentService.reprocessDocument(id);
+        ApiResponse<Document> response = ApiResponse.success(
+            ResponseCodes.DocumentSuccess.REPROCESSING_STARTED,
+            messageService.getMessage(ResponseCodes.DocumentSuccess.REPROCESSING_STARTED),
+            document
+        );
+        return ResponseEntity.accepted().body(response);
+    }
+
+    /**
+     * Upload a revised file as the next version of a document; it replaces the current version once processed
+     */
+    @PostMapping(value = "/{id}/versions", consumes = "multipart/form-data")
+    public ResponseEntity<ApiResponse<Document>> uploadNewVersion(
+            @PathVariable UUID id,
+            @RequestParam("file") MultipartFile file) throws IOException {
+        Document document = documentService.storeNewVersion(id, file);
+        ApiResponse<Document> response = ApiResponse.success(
+            ResponseCodes.DocumentSuccess.VERSION_UPLOADED,
+            messageService.getMessage(ResponseCodes.DocumentSuccess.VERSION_UPLOADED),
+            document
+        );
+        return ResponseEntity.ok(response);
+    }
+
     @GetMapping("/search")
-    public ResponseEntity<ApiResponse<List<Document>>> searchDocuments(
+    public ResponseEntity<ApiResponse<CursorPage<DocumentSearchHit>>> searchDocuments(
             @RequestParam String keyword,
-            @RequestParam(defaultValue = "10") int limit) {
-        List<Document> documents = documentService.searchDocuments(keyword, limit);
-        ApiResponse<List<Document>> response = ApiResponse.success(
+            @RequestParam(defaultValue = "10") int limit,
+            @RequestParam(required = false) String namespace,
+            @RequestParam(required = false) String cursor) {
+        CursorPage<DocumentSearchHit> page = documentService.searchDocuments(keyword, limit, namespace, cursor);
+        ApiResponse<CursorPage<DocumentSearchHit>> response = ApiResponse.success(
             ResponseCodes.DocumentSuccess.SEARCH_COMPLETED,
             messageService.getMessage(ResponseCodes.DocumentSuccess.SEARCH_COMPLETED),
-            documents
+            page
         );
         return ResponseEntity.ok(response);
     }
 
-    @GetMapping("/{id}/chunks")
-    public ResponseEntity<ApiResponse<List<DocumentChunk>>> getDocumentChunks(@PathVariable UUID id) {
-        List<DocumentChunk> chunks = documentService.getDocumentChunks(id);
-        ApiResponse<List<DocumentChunk>> response = ApiResponse.success(
-            ResponseCodes.DocumentSuccess.CHUNKS_RETRIEVED,
-            messageService.getMessage(ResponseCodes.DocumentSuccess.CHUNKS_RETRIEVED),
-            chunks
-        );
-        return ResponseEntity.ok(response);
+    /**
+     * Stream a document's chunks as NDJSON, one chunk per line; embeddings only with includeEmbedding=true
+     */
+    @GetMapping(value = "/{id}/chunks", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> getDocumentChunks(
+            @PathVariable UUID id,
+            @RequestParam(defaultValue = "false") boolean includeEmbedding) {
+        // Checked up front: once streaming starts the status can no longer change
+        if (!documentService.documentExists(id)) {
+            throw new DocumentNotFoundException(id.toString());
+        }
+
+        StreamingResponseBody body = outputStream -> {
+            documentService.exportDocumentChunks(id, includeEmbedding, chunk -> {
+                try {
+                    outputStream.write(objectMapper.writeValueAsBytes(chunk));
+                    outputStream.write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            outputStream.flush();
+        };
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
     }
 
     @GetMapping("/status/{status}")
@@ -0,0 +1,46 @@
+package io.github.avew.oya.dto;
+
+import io.github.avew.oya.entity.Document;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchChatRequest {
+
+    public static final int MAX_QUESTIONS = 1000;
+
+    @NotBlank(message = "User ID is required")
+    private String userId;
+
+    @NotEmpty(message = "Questions are required")
+    @Size(max = MAX_QUESTIONS, message = "Too many questions")
+    private List<@NotBlank(message = "Question must not be blank") String> questions;
+
+    // Optional retrieval filters, shared by all questions
+    @Pattern(regexp = Document.NAMESPACE_PATTERN, message = "Invalid namespace")
+    private String namespace;
+
+    private String contentType;
+
+    private List<UUID> documentIds;
+
+    public SearchFilter toSearchFilter() {
+        return SearchFilter.builder()
+                .namespace(namespace)
+                .contentType(contentType)
+                .documentIds(documentIds)
+                .build();
+    }
+}
@@ -0,0 +1,23 @@
+package io.github.avew.oya.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One line of a batch chat response; results are streamed as they complete, so {@code index}
+ * points back to the question's position in the request
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchChatResult {
+
+    private int index;
+    private String question;
+    private String reply;
+    private boolean successful;
+    private long timestamp;
+}
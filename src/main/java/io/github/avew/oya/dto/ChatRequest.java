@@ -1,12 +1,17 @@
 package io.github.avew.oya.dto;
 
+import io.github.avew.oya.entity.Document;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.List;
+import java.util.UUID;
+
 @Data
 @Builder
 @NoArgsConstructor
@@ -18,4 +23,20 @@ public class ChatRequest {
 
     @NotBlank(message = "Message is required")
     private String message;
+
+    // Optional retrieval filters
+    @Pattern(regexp = Document.NAMESPACE_PATTERN, message = "Invalid namespace")
+    private String namespace;
+
+    private String contentType;
+
+    private List<UUID> documentIds;
+
+    public SearchFilter toSearchFilter() {
+        return SearchFilter.builder()
+                .namespace(namespace)
+                .contentType(contentType)
+                .documentIds(documentIds)
+                .build();
+    }
 }
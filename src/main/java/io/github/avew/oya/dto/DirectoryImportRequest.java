@@ -0,0 +1,23 @@
+package io.github.avew.oya.dto;
+
+import io.github.avew.oya.entity.Document;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Pattern;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DirectoryImportRequest {
+
+    // Absolute, or relative to app.import.allowed-root
+    @NotBlank(message = "Path is required")
+    private String path;
+
+    @Pattern(regexp = Document.NAMESPACE_PATTERN, message = "Invalid namespace")
+    private String namespace;
+}
@@ -0,0 +1,28 @@
+package io.github.avew.oya.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * One line of a chunk export; the embedding is only present when explicitly requested
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class DocumentChunkExport {
+    private UUID id;
+    private UUID documentId;
+    private Integer chunkIndex;
+    private String content;
+    private Integer tokenCount;
+    private LocalDateTime createdAt;
+    private String embedding;
+}
@@ -0,0 +1,29 @@
+package io.github.avew.oya.dto;
+
+import io.github.avew.oya.entity.Document;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Lightweight document keyword search result (no entity, no chunk content)
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DocumentSearchHit {
+    private UUID id;
+    private String filename;
+    private String contentType;
+    private Long fileSize;
+    private Document.DocumentStatus status;
+    private String namespace;
+    private LocalDateTime createdAt;
+    private Float score;
+    private Long matchingChunks;
+}
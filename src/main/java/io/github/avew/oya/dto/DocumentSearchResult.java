@@ -1,5 +1,6 @@
 package io.github.avew.oya.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import io.github.avew.oya.entity.DocumentChunk;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -16,4 +17,7 @@ public class DocumentSearchResult {
     private Double textRank;
     private Double hybridScore;
     private String searchMethod;
+
+    @JsonIgnore
+    private float[] embedding; // parsed chunk embedding, only populated for MMR reranking
 }
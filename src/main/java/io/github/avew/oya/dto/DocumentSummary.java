@@ -0,0 +1,29 @@
+package io.github.avew.oya.dto;
+
+import io.github.avew.oya.entity.Document;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Document listing row (no entity, no chunks)
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DocumentSummary {
+    private UUID id;
+    private String filename;
+    private String contentType;
+    private Long fileSize;
+    private Document.DocumentStatus status;
+    private String namespace;
+    private Long chunkCount;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,33 @@
+package io.github.avew.oya.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+/**
+ * Outcome of one file in a bulk import; index is the file's position in the archive or directory walk
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ImportResult {
+
+    public enum Outcome {
+        IMPORTED,
+        FAILED,
+        SKIPPED
+    }
+
+    private int index;
+    private String path;
+    private Outcome outcome;
+    private UUID documentId;
+    private Long fileSize;
+    private String message;
+}
@@ -0,0 +1,48 @@
+package io.github.avew.oya.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Optional restrictions applied to retrieval queries; null fields mean "no restriction"
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SearchFilter {
+
+    private String namespace;
+    private String contentType;
+    private List<UUID> documentIds;
+
+    public static SearchFilter none() {
+        return new SearchFilter();
+    }
+
+    public boolean isEmpty() {
+        return namespace == null && contentType == null && (documentIds == null || documentIds.isEmpty());
+    }
+
+    /**
+     * Document IDs as a PostgreSQL array literal ({id1,id2}) for native queries, or null when unrestricted
+     */
+    public String documentIdsAsArray() {
+        if (documentIds == null || documentIds.isEmpty()) {
+            return null;
+        }
+        StringBuilder sb = new StringBuilder("{");
+        for (int i = 0; i < documentIds.size(); i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(documentIds.get(i));
+        }
+        return sb.append('}').toString();
+    }
+}
@@ -0,0 +1,29 @@
+package io.github.avew.oya.dto;
+
+import io.github.avew.oya.entity.Document;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Positive;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadInitRequest {
+
+    @NotBlank(message = "Filename is required")
+    private String filename;
+
+    @NotBlank(message = "Content type is required")
+    private String contentType;
+
+    @Positive(message = "File size must be positive")
+    private long fileSize;
+
+    @Pattern(regexp = Document.NAMESPACE_PATTERN, message = "Invalid namespace")
+    private String namespace;
+}
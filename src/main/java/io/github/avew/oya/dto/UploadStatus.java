@@ -0,0 +1,26 @@
+package io.github.avew.oya.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * State of a resumable upload; parts are numbered from 1 and all but the last are partSize bytes
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadStatus {
+
+    private String uploadId;
+    private String filename;
+    private long fileSize;
+    private long partSize;
+    private int partCount;
+    private List<Integer> receivedParts;
+    private List<Integer> missingParts;
+}
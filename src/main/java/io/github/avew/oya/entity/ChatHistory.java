@@ -31,6 +31,18 @@ public class ChatHistory {
     @Column(columnDefinition = "TEXT")
     private String response;
 
+    @Column(name = "prompt_tokens")
+    private Integer promptTokens;
+
+    @Column(name = "completion_tokens")
+    private Integer completionTokens;
+
+    @Column(name = "embedding_tokens")
+    private Integer embeddingTokens;
+
+    @Column(name = "latency_ms")
+    private Long latencyMs;
+
     @CreationTimestamp
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
@@ -1,10 +1,13 @@
 package io.github.avew.oya.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
@@ -15,12 +18,18 @@ import java.util.UUID;
 
 @Entity
 @Table(name = "document")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Document.CACHE_REGION)
 @Data
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
 public class Document {
 
+    public static final String CACHE_REGION = "document";
+    public static final String DEFAULT_NAMESPACE = "default";
+    public static final String NAMESPACE_PATTERN = "^[A-Za-z0-9_-]{1,100}$";
+
     @Id
     @GeneratedValue(strategy = GenerationType.UUID)
     private UUID id;
@@ -37,11 +46,32 @@ public class Document {
     @Column(name = "upload_path", nullable = false)
     private String uploadPath;
 
+    @Column(length = 64)
+    private String checksum; // SHA-256 of the stored file, hex encoded
+
+    @Column(nullable = false)
+    @Builder.Default
+    private Integer version = 1;
+
+    // Never written back on update: deleting the parent nulls it in the database (ON DELETE SET NULL)
+    @Column(name = "parent_document_id", updatable = false)
+    private UUID parentDocumentId; // the version this one replaces, if any
+
+    @Column(nullable = false, length = 100)
+    @Builder.Default
+    private String namespace = DEFAULT_NAMESPACE; // collection / tenant the document belongs to
+
     @Enumerated(EnumType.STRING)
     @Column(nullable = false)
     @Builder.Default
     private DocumentStatus status = DocumentStatus.PROCESSING;
 
+    @Column(name = "embedding_tokens")
+    private Long embeddingTokens;
+
+    @Column(name = "processing_ms")
+    private Long processingMs;
+
     @CreationTimestamp
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
@@ -50,6 +80,7 @@ public class Document {
     @Column(name = "updated_at", nullable = false)
     private LocalDateTime updatedAt;
 
+    @JsonIgnore
     @OneToMany(mappedBy = "document", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     @Builder.Default
     private List<DocumentChunk> chunks = new ArrayList<>();
@@ -57,6 +88,7 @@ public class Document {
     public enum DocumentStatus {
         PROCESSING,
         COMPLETED,
-        FAILED
+        FAILED,
+        SUPERSEDED // replaced by a newer version; kept for history but no longer searched
     }
 }
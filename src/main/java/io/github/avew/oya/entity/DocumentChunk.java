@@ -28,12 +28,19 @@ public class DocumentChunk {
     @JoinColumn(name = "document_id", nullable = false)
     private Document document;
 
+    @Column(nullable = false, length = 100)
+    @Builder.Default
+    private String namespace = Document.DEFAULT_NAMESPACE; // copied from the document so vector search can filter without a join
+
     @Column(name = "chunk_index", nullable = false)
     private Integer chunkIndex;
 
     @Column(nullable = false, columnDefinition = "TEXT")
     private String content;
 
+    @Column(name = "content_hash", length = 64)
+    private String contentHash; // SHA-256 of content, matched against the previous version on re-ingestion
+
     @Column(name = "embedding", columnDefinition = "vector(1536)")
     @Type(VectorType.class)
     private String embedding; // Store as vector string for pgvector
@@ -0,0 +1,15 @@
+package io.github.avew.oya.exception;
+
+import org.zalando.problem.AbstractThrowableProblem;
+import org.zalando.problem.Status;
+
+import java.net.URI;
+
+public class ChatCapacityExceededException extends AbstractThrowableProblem {
+
+    private static final URI TYPE = URI.create("https://oya.github.io/problems/chat-capacity-exceeded");
+
+    public ChatCapacityExceededException(String message) {
+        super(TYPE, "Chat Capacity Exceeded", Status.SERVICE_UNAVAILABLE, message);
+    }
+}
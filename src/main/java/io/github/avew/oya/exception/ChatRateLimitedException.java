@@ -0,0 +1,15 @@
+package io.github.avew.oya.exception;
+
+import org.zalando.problem.AbstractThrowableProblem;
+import org.zalando.problem.Status;
+
+import java.net.URI;
+
+public class ChatRateLimitedException extends AbstractThrowableProblem {
+
+    private static final URI TYPE = URI.create("https://oya.github.io/problems/chat-rate-limited");
+
+    public ChatRateLimitedException(String userId) {
+        super(TYPE, "Too Many Chat Requests", Status.TOO_MANY_REQUESTS, userId);
+    }
+}
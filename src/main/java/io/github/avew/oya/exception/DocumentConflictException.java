@@ -0,0 +1,25 @@
+package io.github.avew.oya.exception;
+
+import io.github.avew.oya.constants.ResponseCodes;
+import lombok.Getter;
+import org.zalando.problem.AbstractThrowableProblem;
+import org.zalando.problem.Status;
+
+import java.net.URI;
+
+@Getter
+public class DocumentConflictException extends AbstractThrowableProblem {
+
+    private static final URI TYPE = URI.create("https://oya.github.io/problems/document-conflict");
+
+    private final String code;
+
+    public DocumentConflictException(String documentId) {
+        this(ResponseCodes.DocumentError.STILL_PROCESSING, documentId);
+    }
+
+    public DocumentConflictException(String code, String documentId) {
+        super(TYPE, "Document Conflict", Status.CONFLICT, documentId);
+        this.code = code;
+    }
+}
@@ -1,15 +1,25 @@
 package io.github.avew.oya.exception;
 
+import lombok.Getter;
 import org.zalando.problem.AbstractThrowableProblem;
 import org.zalando.problem.Status;
 
 import java.net.URI;
 
+@Getter
 public class FileValidationException extends AbstractThrowableProblem {
 
     private static final URI TYPE = URI.create("https://oya.github.io/problems/file-validation-error");
 
+    // Explicit response code; when null the handler derives one from the message
+    private final String code;
+
     public FileValidationException(String message) {
+        this(null, message);
+    }
+
+    public FileValidationException(String code, String message) {
         super(TYPE, "File Validation Error", Status.BAD_REQUEST, message);
+        this.code = code;
     }
 }
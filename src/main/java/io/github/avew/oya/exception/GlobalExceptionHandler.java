@@ -31,12 +31,38 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
     }
 
+    @ExceptionHandler(DocumentConflictException.class)
+    public ResponseEntity<ApiResponse<Object>> handleDocumentConflict(DocumentConflictException ex) {
+        log.warn("Document conflict: {}", ex.getMessage());
+
+        ApiResponse<Object> response = ApiResponse.error(
+            ex.getCode(),
+            messageService.getMessage(ex.getCode(), new Object[]{ex.getDetail()})
+        );
+
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+    }
+
+    @ExceptionHandler(UploadSessionNotFoundException.class)
+    public ResponseEntity<ApiResponse<Object>> handleUploadSessionNotFound(UploadSessionNotFoundException ex) {
+        log.warn("Upload session not found: {}", ex.getDetail());
+
+        ApiResponse<Object> response = ApiResponse.error(
+            ResponseCodes.DocumentError.UPLOAD_SESSION_NOT_FOUND,
+            messageService.getMessage(ResponseCodes.DocumentError.UPLOAD_SESSION_NOT_FOUND, new Object[]{ex.getDetail()})
+        );
+
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+    }
+
     @ExceptionHandler(FileValidationException.class)
     public ResponseEntity<ApiResponse<Object>> handleFileValidation(FileValidationException ex) {
         log.error("File validation error: {}", ex.getMessage());
 
-        // Determine specific file error code based on message content
-        String errorCode = determineFileErrorCode(ex.getDetail() != null ? ex.getDetail() : "");
+        // Determine specific file error code based on message content, unless the exception carries one
+        String errorCode = ex.getCode() != null
+                ? ex.getCode()
+                : determineFileErrorCode(ex.getDetail() != null ? ex.getDetail() : "");
 
         ApiResponse<Object> response = ApiResponse.error(
             errorCode,
@@ -70,6 +96,30 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
     }
 
+    @ExceptionHandler(ChatRateLimitedException.class)
+    public ResponseEntity<ApiResponse<Object>> handleChatRateLimited(ChatRateLimitedException ex) {
+        log.warn("Chat request rejected: {}", ex.getMessage());
+
+        ApiResponse<Object> response = ApiResponse.error(
+            ResponseCodes.ChatError.TOO_MANY_REQUESTS,
+            messageService.getMessage(ResponseCodes.ChatError.TOO_MANY_REQUESTS, new Object[]{ex.getDetail()})
+        );
+
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(response);
+    }
+
+    @ExceptionHandler(ChatCapacityExceededException.class)
+    public ResponseEntity<ApiResponse<Object>> handleChatCapacityExceeded(ChatCapacityExceededException ex) {
+        log.warn("Chat request rejected: {}", ex.getMessage());
+
+        ApiResponse<Object> response = ApiResponse.error(
+            ResponseCodes.ChatError.CAPACITY_EXCEEDED,
+            messageService.getMessage(ResponseCodes.ChatError.CAPACITY_EXCEEDED)
+        );
+
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(response);
+    }
+
     @ExceptionHandler(IllegalArgumentException.class)
     public ResponseEntity<ApiResponse<Object>> handleIllegalArgument(IllegalArgumentException ex) {
         log.error("Illegal argument: {}", ex.getMessage());
@@ -136,6 +186,10 @@ public class GlobalExceptionHandler {
     private String determineErrorCodeFromMessage(String message) {
         if (message.contains("status")) {
             return ResponseCodes.ValidationError.INVALID_STATUS;
+        } else if (message.contains("namespace")) {
+            return ResponseCodes.ValidationError.INVALID_NAMESPACE;
+        } else if (message.contains("cursor")) {
+            return ResponseCodes.ValidationError.INVALID_CURSOR;
         }
         return ResponseCodes.ValidationError.VALIDATION_FAILED; // default
     }
@@ -0,0 +1,15 @@
+package io.github.avew.oya.exception;
+
+import org.zalando.problem.AbstractThrowableProblem;
+import org.zalando.problem.Status;
+
+import java.net.URI;
+
+public class UploadSessionNotFoundException extends AbstractThrowableProblem {
+
+    private static final URI TYPE = URI.create("https://oya.github.io/problems/upload-session-not-found");
+
+    public UploadSessionNotFoundException(String uploadId) {
+        super(TYPE, "Upload Session Not Found", Status.NOT_FOUND, uploadId);
+    }
+}
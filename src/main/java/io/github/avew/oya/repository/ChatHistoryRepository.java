@@ -12,11 +12,19 @@ import java.util.UUID;
 @Repository
 public interface ChatHistoryRepository extends JpaRepository<ChatHistory, UUID> {
 
-    List<ChatHistory> findByUserIdOrderByCreatedAtDesc(String userId);
-
-    @Query("SELECT ch FROM ChatHistory ch WHERE ch.userId = :userId ORDER BY ch.createdAt DESC")
-    List<ChatHistory> findRecentChatHistory(@Param("userId") String userId);
-
-    @Query(value = "SELECT * FROM chat_history WHERE user_id = :userId ORDER BY created_at DESC LIMIT :limit", nativeQuery = true)
-    List<ChatHistory> findRecentChatHistoryWithLimit(@Param("userId") String userId, @Param("limit") int limit);
+    /**
+     * Keyset page of a user's history, newest first; pass the last row's created_at and id to continue
+     */
+    @Query(value = """
+        SELECT * FROM chat_history
+        WHERE user_id = :userId
+        AND (CAST(:cursorId AS varchar) IS NULL
+             OR (created_at, id) < (CAST(:cursorCreatedAt AS timestamp), CAST(:cursorId AS uuid)))
+        ORDER BY created_at DESC, id DESC
+        LIMIT :limit
+        """, nativeQuery = true)
+    List<ChatHistory> findHistoryPage(@Param("userId") String userId,
+                                      @Param("cursorCreatedAt") String cursorCreatedAt,
+                                      @Param("cursorId") String cursorId,
+                                      @Param("limit") int limit);
 }
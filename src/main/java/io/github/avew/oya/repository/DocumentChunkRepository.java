@@ -1,10 +1,15 @@
 package io.github.avew.oya.repository;
 
 import io.github.avew.oya.entity.DocumentChunk;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.UUID;
@@ -82,7 +87,9 @@ public interface DocumentChunkRepository extends JpaRepository<DocumentChunk, UU
                        (0.3 * ts_rank(to_tsvector('english', dc.content), plainto_tsquery('english', :keyword)))
                    ELSE
                        ts_rank(to_tsvector('english', dc.content), plainto_tsquery('english', :keyword))
-               END as hybrid_score
+               END as hybrid_score,
+               CAST(dc.embedding AS text) as embedding,
+               d.filename, dc.namespace, d.content_type
         FROM document_chunk dc
         JOIN document d ON dc.document_id = d.id
         WHERE d.status = 'COMPLETED'
@@ -91,17 +98,128 @@ public interface DocumentChunkRepository extends JpaRepository<DocumentChunk, UU
             OR dc.content ILIKE CONCAT('%', :keyword, '%') 
             OR to_tsvector('english', dc.content) @@ plainto_tsquery('english', :keyword)
         )
+        AND (CAST(:namespace AS varchar) IS NULL OR dc.namespace = :namespace)
+        AND (CAST(:contentType AS varchar) IS NULL OR d.content_type = :contentType)
+        AND (CAST(:documentIds AS text) IS NULL OR dc.document_id = ANY(CAST(:documentIds AS uuid[])))
         ORDER BY hybrid_score DESC
         LIMIT :limit
         """, nativeQuery = true)
-    List<Object[]> findSimilarChunksByHybridSearchWithScoresRaw(@Param("queryEmbedding") String queryEmbedding, @Param("keyword") String keyword, @Param("limit") int limit);
+    List<Object[]> findSimilarChunksByHybridSearchWithScoresRaw(@Param("queryEmbedding") String queryEmbedding,
+                                                                @Param("keyword") String keyword,
+                                                                @Param("namespace") String namespace,
+                                                                @Param("contentType") String contentType,
+                                                                @Param("documentIds") String documentIds,
+                                                                @Param("limit") int limit);
+
+    // Two-stage hybrid search: coarse Hamming scan over binary-quantized embeddings (plus full-text matches)
+    // to collect an oversampled candidate set, then exact cosine rerank on the full vectors of those candidates only
+    @Query(value = """
+        WITH vector_candidates AS (
+            SELECT dc.id
+            FROM document_chunk dc
+            JOIN document d ON dc.document_id = d.id
+            WHERE d.status = 'COMPLETED'
+            AND dc.embedding IS NOT NULL
+            AND (CAST(:namespace AS varchar) IS NULL OR dc.namespace = :namespace)
+            AND (CAST(:contentType AS varchar) IS NULL OR d.content_type = :contentType)
+            AND (CAST(:documentIds AS text) IS NULL OR dc.document_id = ANY(CAST(:documentIds AS uuid[])))
+            ORDER BY CAST(binary_quantize(dc.embedding) AS bit(1536)) <~> binary_quantize(CAST(:queryEmbedding AS vector))
+            LIMIT :candidateLimit
+        ),
+        keyword_candidates AS (
+            SELECT dc.id
+            FROM document_chunk dc
+            JOIN document d ON dc.document_id = d.id
+            WHERE d.status = 'COMPLETED'
+            AND to_tsvector('english', dc.content) @@ plainto_tsquery('english', :keyword)
+            AND (CAST(:namespace AS varchar) IS NULL OR dc.namespace = :namespace)
+            AND (CAST(:contentType AS varchar) IS NULL OR d.content_type = :contentType)
+            AND (CAST(:documentIds AS text) IS NULL OR dc.document_id = ANY(CAST(:documentIds AS uuid[])))
+            LIMIT :candidateLimit
+        )
+        SELECT dc.id, dc.document_id, dc.chunk_index, dc.content, dc.token_count, dc.created_at,
+               CASE
+                   WHEN dc.embedding IS NOT NULL THEN (1 - (dc.embedding <=> CAST(:queryEmbedding AS vector)))
+                   ELSE 0.0
+               END as vector_similarity,
+               ts_rank(to_tsvector('english', dc.content), plainto_tsquery('english', :keyword)) as text_rank,
+               CASE
+                   WHEN dc.embedding IS NOT NULL THEN
+                       (0.7 * (1 - (dc.embedding <=> CAST(:queryEmbedding AS vector)))) +
+                       (0.3 * ts_rank(to_tsvector('english', dc.content), plainto_tsquery('english', :keyword)))
+                   ELSE
+                       ts_rank(to_tsvector('english', dc.content), plainto_tsquery('english', :keyword))
+               END as hybrid_score,
+               CAST(dc.embedding AS text) as embedding,
+               d.filename, dc.namespace, d.content_type
+        FROM document_chunk dc
+        JOIN document d ON dc.document_id = d.id
+        WHERE dc.id IN (SELECT id FROM vector_candidates UNION SELECT id FROM keyword_candidates)
+        ORDER BY hybrid_score DESC
+        LIMIT :limit
+        """, nativeQuery = true)
+    List<Object[]> findSimilarChunksByTwoStageSearchWithScoresRaw(@Param("queryEmbedding") String queryEmbedding,
+                                                                  @Param("keyword") String keyword,
+                                                                  @Param("namespace") String namespace,
+                                                                  @Param("contentType") String contentType,
+                                                                  @Param("documentIds") String documentIds,
+                                                                  @Param("candidateLimit") int candidateLimit,
+                                                                  @Param("limit") int limit);
+
+    // Sets a planner/index setting for the current transaction only (e.g. hnsw.ef_search, hnsw.iterative_scan)
+    @Query(value = "SELECT set_config(:name, :value, true)", nativeQuery = true)
+    String setLocalConfig(@Param("name") String name, @Param("value") String value);
 
     // Fallback text search when vector search is not available
     @Query(value = "SELECT * FROM document_chunk WHERE content ILIKE CONCAT('%', :keyword, '%') ORDER BY chunk_index LIMIT :limit", nativeQuery = true)
     List<DocumentChunk> findByContentContaining(@Param("keyword") String keyword, @Param("limit") int limit);
 
+    // Filtered text search over completed documents, used as fallback when the query cannot be embedded.
+    // Returns the same column layout as the hybrid search queries (without vector scores or embedding).
+    @Query(value = """
+        SELECT dc.id, dc.document_id, dc.chunk_index, dc.content, dc.token_count, dc.created_at,
+               0.0 as vector_similarity,
+               ts_rank(to_tsvector('english', dc.content), plainto_tsquery('english', :keyword)) as text_rank,
+               ts_rank(to_tsvector('english', dc.content), plainto_tsquery('english', :keyword)) as hybrid_score,
+               NULL as embedding,
+               d.filename, dc.namespace, d.content_type
+        FROM document_chunk dc
+        JOIN document d ON dc.document_id = d.id
+        WHERE d.status = 'COMPLETED'
+        AND dc.content ILIKE CONCAT('%', :keyword, '%')
+        AND (CAST(:namespace AS varchar) IS NULL OR dc.namespace = :namespace)
+        AND (CAST(:contentType AS varchar) IS NULL OR d.content_type = :contentType)
+        AND (CAST(:documentIds AS text) IS NULL OR dc.document_id = ANY(CAST(:documentIds AS uuid[])))
+        ORDER BY text_rank DESC, dc.chunk_index
+        LIMIT :limit
+        """, nativeQuery = true)
+    List<Object[]> findCompletedChunksByKeywordWithFilterRaw(@Param("keyword") String keyword,
+                                                             @Param("namespace") String namespace,
+                                                             @Param("contentType") String contentType,
+                                                             @Param("documentIds") String documentIds,
+                                                             @Param("limit") int limit);
+
     @Query("SELECT dc FROM DocumentChunk dc JOIN dc.document d WHERE d.status = 'COMPLETED' AND dc.content ILIKE CONCAT('%', :keyword, '%')")
     List<DocumentChunk> findCompletedChunksWithKeyword(@Param("keyword") String keyword);
 
-    void deleteByDocumentId(UUID documentId);
+    @Query(value = "SELECT COUNT(*) FROM document_chunk WHERE namespace = :namespace", nativeQuery = true)
+    long countByNamespace(@Param("namespace") String namespace);
+
+    // Embeddings of a document's chunks keyed by content hash, for reuse by its next version.
+    // Chunks stored before hashes existed are hashed here the same way (SHA-256 of the UTF-8 content).
+    // Array structure: [0]=content_hash, [1]=embedding (pgvector text)
+    @Query(value = """
+        SELECT COALESCE(content_hash, encode(sha256(convert_to(content, 'UTF8')), 'hex')), CAST(embedding AS text)
+        FROM document_chunk
+        WHERE document_id = :documentId AND embedding IS NOT NULL
+        """, nativeQuery = true)
+    List<Object[]> findEmbeddingsByContentHashRaw(@Param("documentId") UUID documentId);
+
+    // One set-based statement instead of loading and deleting each chunk entity; the query space keeps
+    // the cached Document entries intact
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "document_chunk"))
+    @Transactional
+    @Query(value = "DELETE FROM document_chunk WHERE document_id = :documentId", nativeQuery = true)
+    int deleteChunksByDocumentId(@Param("documentId") UUID documentId);
 }
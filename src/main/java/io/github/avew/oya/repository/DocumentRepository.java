@@ -1,10 +1,15 @@
 package io.github.avew.oya.repository;
 
 import io.github.avew.oya.entity.Document;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.UUID;
@@ -14,17 +19,119 @@ public interface DocumentRepository extends JpaRepository<Document, UUID> {
 
     List<Document> findByFilenameContainingIgnoreCase(String filename);
 
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     List<Document> findByStatus(Document.DocumentStatus status);
 
     List<Document> findByContentTypeContainingIgnoreCase(String contentType);
 
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     @Query("SELECT d FROM Document d WHERE d.status = :status ORDER BY d.createdAt DESC")
     List<Document> findByStatusOrderByCreatedAtDesc(@Param("status") Document.DocumentStatus status);
 
-    @Query("SELECT d FROM Document d JOIN d.chunks dc WHERE dc.content ILIKE %:keyword% GROUP BY d.id")
-    List<Document> findDocumentsWithContentKeyword(@Param("keyword") String keyword);
+    // Native updates name the "document" table as their query space, so Hibernate evicts only the Document
+    // cache regions instead of the whole second-level cache.
+    // Chunks go with the document through ON DELETE CASCADE; a document that is still being ingested is left alone
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "document"))
+    @Transactional
+    @Query(value = "DELETE FROM document WHERE id = :id AND status <> 'PROCESSING'", nativeQuery = true)
+    int deleteIfNotProcessing(@Param("id") UUID id);
 
-    @Query("SELECT COUNT(dc) FROM Document d JOIN d.chunks dc WHERE d.id = :documentId")
-    Long countChunksByDocumentId(@Param("documentId") UUID documentId);
+    // Claims a document for re-ingestion unless it is already being processed, has been superseded or has a
+    // newer version (possibly still processing, which would supersede it mid re-ingestion)
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "document"))
+    @Transactional
+    @Query(value = """
+        UPDATE document SET status = 'PROCESSING', updated_at = NOW()
+        WHERE id = :id AND status IN ('COMPLETED', 'FAILED')
+        AND NOT EXISTS (SELECT 1 FROM document successor WHERE successor.parent_document_id = :id)
+        """, nativeQuery = true)
+    int markProcessingIfIdle(@Param("id") UUID id);
+
+    // Retires the live previous version; runs in the same transaction that makes its successor COMPLETED.
+    // Only COMPLETED rows are superseded, so restoreSuperseded always brings back a version that was live.
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "document"))
+    @Query(value = """
+        UPDATE document SET status = 'SUPERSEDED', updated_at = NOW()
+        WHERE id = :id AND status = 'COMPLETED'
+        """, nativeQuery = true)
+    int markSuperseded(@Param("id") UUID id);
+
+    // Makes a superseded version live again when the version that replaced it is deleted
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "document"))
+    @Query(value = "UPDATE document SET status = 'COMPLETED', updated_at = NOW() WHERE id = :id AND status = 'SUPERSEDED'",
+           nativeQuery = true)
+    int restoreSuperseded(@Param("id") UUID id);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    boolean existsByParentDocumentId(UUID parentDocumentId);
+
+    boolean existsByIdAndStatus(UUID id, Document.DocumentStatus status);
+
+    // Keyset-paginated listing, newest first; chunk counts for the page come from one aggregate over document_chunk.
+    // Cursor parameters are null for the first page.
+    // Array structure: [0]=id, [1]=filename, [2]=content_type, [3]=file_size, [4]=status, [5]=namespace,
+    //                  [6]=created_at, [7]=updated_at, [8]=chunk_count
+    @Query(value = """
+        WITH page AS (
+            SELECT d.id, d.filename, d.content_type, d.file_size, d.status, d.namespace, d.created_at, d.updated_at
+            FROM document d
+            WHERE (CAST(:status AS varchar) IS NULL OR d.status = :status)
+            AND (CAST(:namespace AS varchar) IS NULL OR d.namespace = :namespace)
+            AND (CAST(:cursorId AS varchar) IS NULL
+                 OR (d.created_at, d.id) < (CAST(:cursorCreatedAt AS timestamp), CAST(:cursorId AS uuid)))
+            ORDER BY d.created_at DESC, d.id DESC
+            LIMIT :limit
+        ),
+        chunk_counts AS (
+            SELECT dc.document_id, COUNT(*) AS chunk_count
+            FROM document_chunk dc
+            WHERE dc.document_id IN (SELECT id FROM page)
+            GROUP BY dc.document_id
+        )
+        SELECT p.id, p.filename, p.content_type, p.file_size, p.status, p.namespace, p.created_at, p.updated_at,
+               COALESCE(cc.chunk_count, 0) AS chunk_count
+        FROM page p
+        LEFT JOIN chunk_counts cc ON cc.document_id = p.id
+        ORDER BY p.created_at DESC, p.id DESC
+        """, nativeQuery = true)
+    List<Object[]> listDocumentsRaw(@Param("status") String status,
+                                    @Param("namespace") String namespace,
+                                    @Param("cursorCreatedAt") String cursorCreatedAt,
+                                    @Param("cursorId") String cursorId,
+                                    @Param("limit") int limit);
+
+    // Keyset-paginated keyword search: one row per matching document, ordered by (score, created_at, id) descending.
+    // Cursor parameters are null for the first page.
+    // Array structure: [0]=id, [1]=filename, [2]=content_type, [3]=file_size, [4]=status, [5]=namespace,
+    //                  [6]=created_at, [7]=score, [8]=matching_chunks
+    @Query(value = """
+        SELECT d.id, d.filename, d.content_type, d.file_size, d.status, d.namespace, d.created_at,
+               m.score, m.matching_chunks
+        FROM (
+            SELECT dc.document_id,
+                   MAX(ts_rank(to_tsvector('english', dc.content), plainto_tsquery('english', :keyword))) AS score,
+                   COUNT(*) AS matching_chunks
+            FROM document_chunk dc
+            WHERE dc.content ILIKE CONCAT('%', :keyword, '%')
+            AND (CAST(:namespace AS varchar) IS NULL OR dc.namespace = :namespace)
+            GROUP BY dc.document_id
+        ) m
+        JOIN document d ON d.id = m.document_id
+        WHERE d.status = 'COMPLETED'
+        AND (CAST(:cursorId AS varchar) IS NULL
+           OR (m.score, d.created_at, d.id) < (CAST(:cursorScore AS real), CAST(:cursorCreatedAt AS timestamp), CAST(:cursorId AS uuid)))
+        ORDER BY m.score DESC, d.created_at DESC, d.id DESC
+        LIMIT :limit
+        """, nativeQuery = true)
+    List<Object[]> searchDocumentsByKeywordRaw(@Param("keyword") String keyword,
+                                               @Param("namespace") String namespace,
+                                               @Param("cursorScore") String cursorScore,
+                                               @Param("cursorCreatedAt") String cursorCreatedAt,
+                                               @Param("cursorId") String cursorId,
+                                               @Param("limit") int limit);
 }
 
@@ -0,0 +1,222 @@
+package io.github.avew.oya.service;
+
+import io.github.avew.oya.constants.ResponseCodes;
+import io.github.avew.oya.dto.ImportResult;
+import io.github.avew.oya.entity.Document;
+import io.github.avew.oya.exception.FileValidationException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.compress.archivers.ArchiveEntry;
+import org.apache.commons.compress.archivers.ArchiveInputStream;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.compress.archivers.zip.ZipArchiveInputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Bulk import from an archive stream or a server directory. Entries are read sequentially and copied to
+ * the upload directory one at a time (nothing is extracted up front); parsing, batched embedding and chunk
+ * inserts then run for up to app.import.parallelism files at once while the next entries are being read.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BulkImportService {
+
+    public static final String ZIP = "application/zip";
+    public static final String TAR = "application/x-tar";
+    public static final String TAR_GZ = "application/gzip";
+
+    private final DocumentService documentService;
+    private final MessageService messageService;
+    private final ExecutorService virtualThreadExecutor;
+
+    @Value("${app.import.parallelism:8}")
+    private int parallelism;
+
+    @Value("${app.import.allowed-root:}")
+    private String allowedRoot;
+
+    /**
+     * Import every supported file in a zip, tar or tar.gz stream; results go to the sink as files finish
+     */
+    public void importArchive(InputStream body, String archiveType, String namespace, Consumer<ImportResult> sink)
+            throws IOException {
+        Importer importer = new Importer(namespace, sink);
+        try (ArchiveInputStream archive = openArchive(body, archiveType)) {
+            ArchiveEntry entry;
+            while (!importer.aborted.get() && (entry = archive.getNextEntry()) != null) {
+                if (entry.isDirectory()) {
+                    continue;
+                }
+                if (!archive.canReadEntryData(entry)) {
+                    importer.skip(entry.getName(), messageService.getMessage(
+                            ResponseCodes.FileError.UNSUPPORTED_TYPE, new Object[]{entry.getName()}));
+                    continue;
+                }
+                importer.submit(entry.getName(), entry.getSize(), archive);
+            }
+        } finally {
+            importer.await();
+        }
+    }
+
+    /**
+     * Import every supported regular file below a directory already checked by resolveImportDirectory.
+     * Files are copied into the upload directory, so deleting a document never touches the source tree.
+     */
+    public void importDirectory(Path directory, String namespace, Consumer<ImportResult> sink) throws IOException {
+        Importer importer = new Importer(namespace, sink);
+        try (Stream<Path> paths = Files.walk(directory)) {
+            // Symlinks are not followed, so nothing outside the allowed root can be reached
+            Iterator<Path> files = paths.filter(path -> Files.isRegularFile(path, LinkOption.NOFOLLOW_LINKS)).iterator();
+            while (!importer.aborted.get() && files.hasNext()) {
+                Path file = files.next();
+                try (InputStream in = Files.newInputStream(file)) {
+                    importer.submit(directory.relativize(file).toString(), Files.size(file), in);
+                }
+            }
+        } finally {
+            importer.await();
+        }
+    }
+
+    /**
+     * Resolve a requested import directory, which must exist below app.import.allowed-root
+     */
+    public Path resolveImportDirectory(String path) {
+        if (allowedRoot == null || allowedRoot.isBlank()) {
+            throw invalidImportPath(path);
+        }
+        try {
+            Path root = Paths.get(allowedRoot).toRealPath();
+            Path directory = root.resolve(path).toRealPath();
+            if (!directory.startsWith(root) || !Files.isDirectory(directory)) {
+                throw invalidImportPath(path);
+            }
+            return directory;
+        } catch (IOException | InvalidPathException e) {
+            throw invalidImportPath(path);
+        }
+    }
+
+    private FileValidationException invalidImportPath(String path) {
+        return new FileValidationException(ResponseCodes.ValidationError.INVALID_IMPORT_PATH,
+                messageService.getMessage(ResponseCodes.ValidationError.INVALID_IMPORT_PATH, new Object[]{path}));
+    }
+
+    private static ArchiveInputStream openArchive(InputStream body, String archiveType)
+            throws IOException {
+        return switch (archiveType) {
+            case ZIP -> new ZipArchiveInputStream(body);
+            case TAR_GZ -> new TarArchiveInputStream(new GzipCompressorInputStream(body));
+            default -> new TarArchiveInputStream(body);
+        };
+    }
+
+    /**
+     * State of one import run: the reader thread stores entries and submits them, workers ingest them
+     */
+    private final class Importer {
+
+        private final String namespace;
+        private final Consumer<ImportResult> sink;
+        private final Semaphore permits = new Semaphore(parallelism);
+        private final List<CompletableFuture<Void>> tasks = new ArrayList<>();
+        private final AtomicBoolean aborted = new AtomicBoolean();
+        private int nextIndex;
+
+        private Importer(String namespace, Consumer<ImportResult> sink) {
+            this.namespace = namespace;
+            this.sink = sink;
+        }
+
+        void submit(String path, long declaredSize, InputStream in) throws IOException {
+            String filename = path.substring(path.lastIndexOf('/') + 1);
+            // Archive tool metadata (e.g. __MACOSX/._report.pdf) and hidden files are not documents
+            if (filename.isEmpty() || filename.startsWith(".") || path.startsWith("__MACOSX/")) {
+                return;
+            }
+            int index = nextIndex++;
+
+            String contentType = documentService.detectContentType(filename);
+            DocumentService.StoredFile stored;
+            try {
+                if (declaredSize == 0) {
+                    throw new FileValidationException(messageService.getMessage(ResponseCodes.FileError.FILE_EMPTY));
+                }
+                documentService.validateUpload(filename, contentType, declaredSize, DocumentService.MAX_FILE_SIZE_BYTES);
+                stored = documentService.saveToStorage(in, filename);
+            } catch (FileValidationException e) {
+                emit(result(index, path, ImportResult.Outcome.SKIPPED).message(e.getDetail()).build());
+                return;
+            }
+
+            // Bounds files in flight; the reader blocks here until a worker finishes
+            permits.acquireUninterruptibly();
+            tasks.add(CompletableFuture.runAsync(() -> {
+                try {
+                    Document document = documentService.ingestStoredFile(stored.path(), filename, contentType,
+                            stored.size(), stored.checksum(), namespace);
+                    boolean completed = document.getStatus() == Document.DocumentStatus.COMPLETED;
+                    emit(result(index, path, completed ? ImportResult.Outcome.IMPORTED : ImportResult.Outcome.FAILED)
+                            .documentId(document.getId())
+                            .fileSize(stored.size())
+                            .message(completed ? null
+                                    : messageService.getMessage(ResponseCodes.DocumentError.PROCESSING_FAILED))
+                            .build());
+                } catch (Exception e) {
+                    log.error("Bulk import failed for {}", path, e);
+                    emit(result(index, path, ImportResult.Outcome.FAILED)
+                            .message(messageService.getMessage(ResponseCodes.DocumentError.UPLOAD_FAILED))
+                            .build());
+                } finally {
+                    permits.release();
+                }
+            }, virtualThreadExecutor));
+        }
+
+        void skip(String path, String message) {
+            emit(result(nextIndex++, path, ImportResult.Outcome.SKIPPED).message(message).build());
+        }
+
+        void await() {
+            CompletableFuture.allOf(tasks.toArray(CompletableFuture[]::new)).join();
+        }
+
+        private ImportResult.ImportResultBuilder result(int index, String path, ImportResult.Outcome outcome) {
+            return ImportResult.builder().index(index).path(path).outcome(outcome);
+        }
+
+        private void emit(ImportResult result) {
+            if (aborted.get()) {
+                return;
+            }
+            try {
+                sink.accept(result);
+            } catch (RuntimeException e) {
+                // The client went away: stop reading further entries, let in-flight files finish ingesting
+                log.warn("Bulk import result could not be delivered, aborting import: {}", e.getMessage());
+                aborted.set(true);
+            }
+        }
+    }
+}
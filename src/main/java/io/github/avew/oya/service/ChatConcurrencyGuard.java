@@ -0,0 +1,133 @@
+package io.github.avew.oya.service;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import io.github.avew.oya.exception.ChatCapacityExceededException;
+import io.github.avew.oya.exception.ChatRateLimitedException;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * In-flight control for chat turns: identical concurrent requests share one computation, each user
+ * gets a bounded number of concurrent turns (excess requests wait briefly, then are rejected), and a
+ * global bulkhead caps outstanding completion calls.
+ */
+@Service
+@Slf4j
+public class ChatConcurrencyGuard {
+
+    @Value("${app.chat.concurrency.per-user-max-concurrent:1}")
+    private int perUserMaxConcurrent;
+
+    @Value("${app.chat.concurrency.per-user-queue-timeout:10s}")
+    private Duration perUserQueueTimeout;
+
+    @Value("${app.chat.concurrency.max-concurrent-completions:50}")
+    private int maxConcurrentCompletions;
+
+    @Value("${app.chat.concurrency.completion-queue-timeout:5s}")
+    private Duration completionQueueTimeout;
+
+    private final ConcurrentMap<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    // Weak values: a user's semaphore is dropped once no request holds a reference to it
+    private LoadingCache<String, Semaphore> userPermits;
+    private Semaphore completionPermits;
+
+    @PostConstruct
+    void init() {
+        userPermits = Caffeine.newBuilder()
+                .weakValues()
+                .build(userId -> new Semaphore(perUserMaxConcurrent, true));
+        completionPermits = new Semaphore(maxConcurrentCompletions, true);
+    }
+
+    /**
+     * Run the work, or join the identical request already in flight for the same key
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T coalesce(String key, Supplier<T> work) {
+        CompletableFuture<Object> mine = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(key, mine);
+        if (existing != null) {
+            log.info("Coalescing duplicate in-flight chat request");
+            try {
+                return (T) existing.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                throw e;
+            }
+        }
+
+        try {
+            T result = work.get();
+            mine.complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    public Permit acquireUserPermit(String userId) {
+        Semaphore semaphore = userPermits.get(userId);
+        if (!tryAcquire(semaphore, perUserQueueTimeout)) {
+            log.warn("Rejecting chat request, too many concurrent requests for user: {}", userId);
+            throw new ChatRateLimitedException(userId);
+        }
+        return new Permit(semaphore);
+    }
+
+    public Permit acquireCompletionPermit() {
+        if (!tryAcquire(completionPermits, completionQueueTimeout)) {
+            log.warn("Rejecting chat request, {} completion calls already in flight", maxConcurrentCompletions);
+            throw new ChatCapacityExceededException("Too many outstanding completion calls");
+        }
+        return new Permit(completionPermits);
+    }
+
+    private boolean tryAcquire(Semaphore semaphore, Duration timeout) {
+        try {
+            return semaphore.tryAcquire(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Held permit; releasing is idempotent so stream callbacks can all release safely
+     */
+    public static final class Permit implements AutoCloseable {
+
+        private final Semaphore semaphore;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(Semaphore semaphore) {
+            this.semaphore = semaphore;
+        }
+
+        @Override
+        public void close() {
+            if (released.compareAndSet(false, true)) {
+                semaphore.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package io.github.avew.oya.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * Maintains the monthly partitions of chat_history: creates upcoming months ahead of time, moves rows
+ * that still landed in the default partition (e.g. while the job was not running) into their month, and
+ * drops whole months past the retention period.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ChatHistoryPartitionService {
+
+    private static final String PARTITION_PREFIX = "chat_history_p";
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private TransactionTemplate writeTransaction;
+
+    @Value("${app.chat.history-partitions.months-ahead:2}")
+    private int monthsAhead;
+
+    // Months of history to keep; 0 keeps everything
+    @Value("${app.chat.history-partitions.retention-months:0}")
+    private int retentionMonths;
+
+    @PostConstruct
+    void init() {
+        writeTransaction = new TransactionTemplate(transactionManager);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        maintainPartitions();
+    }
+
+    @Scheduled(cron = "${app.chat.history-partitions.cron:0 15 3 * * *}")
+    public void maintainPartitions() {
+        try {
+            createUpcomingPartitions();
+            dropExpiredPartitions();
+        } catch (Exception e) {
+            log.error("Error maintaining chat_history partitions", e);
+        }
+    }
+
+    private void createUpcomingPartitions() {
+        SortedSet<YearMonth> months = new TreeSet<>();
+        YearMonth current = YearMonth.now();
+        for (int i = 0; i <= monthsAhead; i++) {
+            months.add(current.plusMonths(i));
+        }
+        // Months that already have rows in the default partition get their own partition as well
+        jdbcTemplate.queryForList("SELECT DISTINCT to_char(created_at, 'YYYYMM') FROM chat_history_default",
+                        String.class)
+                .forEach(month -> months.add(YearMonth.parse(month, PARTITION_SUFFIX)));
+
+        for (YearMonth month : months) {
+            String partition = partitionName(month);
+            Boolean exists = jdbcTemplate.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class, partition);
+            if (!Boolean.TRUE.equals(exists)) {
+                createPartition(month, partition);
+            }
+        }
+    }
+
+    /**
+     * Creating a month fails while the default partition holds any of its rows, so those rows are parked
+     * in a temporary table, the month is created and they are inserted back through the parent, all in one
+     * transaction. History writes wait on the table lock meanwhile, so no new row can slip into the default
+     * partition between the move and the create.
+     */
+    private void createPartition(YearMonth month, String partition) {
+        // Names and bounds come from YearMonth, never from user input
+        String from = month.atDay(1).toString();
+        String to = month.plusMonths(1).atDay(1).toString();
+
+        Integer moved = writeTransaction.execute(status -> {
+            jdbcTemplate.execute("LOCK TABLE chat_history IN SHARE ROW EXCLUSIVE MODE");
+            jdbcTemplate.execute("CREATE TEMPORARY TABLE chat_history_moving (LIKE chat_history) ON COMMIT DROP");
+            int rows = jdbcTemplate.update("WITH moved AS (DELETE FROM chat_history_default"
+                    + " WHERE created_at >= '" + from + "' AND created_at < '" + to + "' RETURNING *)"
+                    + " INSERT INTO chat_history_moving SELECT * FROM moved");
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + partition
+                    + " PARTITION OF chat_history FOR VALUES FROM ('" + from + "') TO ('" + to + "')");
+            jdbcTemplate.update("INSERT INTO chat_history SELECT * FROM chat_history_moving");
+            return rows;
+        });
+
+        log.info("Created chat_history partition {}", partition);
+        if (moved != null && moved > 0) {
+            log.info("Moved {} rows from chat_history_default into {}", moved, partition);
+        }
+    }
+
+    private void dropExpiredPartitions() {
+        if (retentionMonths <= 0) {
+            return;
+        }
+        YearMonth oldestKept = YearMonth.now().minusMonths(retentionMonths - 1L);
+
+        List<String> partitions = jdbcTemplate.queryForList("""
+                SELECT c.relname FROM pg_inherits i
+                JOIN pg_class c ON c.oid = i.inhrelid
+                JOIN pg_class p ON p.oid = i.inhparent
+                WHERE p.relname = 'chat_history'
+                """, String.class);
+
+        for (String partition : partitions) {
+            YearMonth month = parseMonth(partition);
+            if (month != null && month.isBefore(oldestKept)) {
+                // Dropping a whole month is a metadata operation, unlike deleting its rows
+                jdbcTemplate.execute("DROP TABLE IF EXISTS " + partition);
+                log.info("Dropped chat_history partition {} (retention: {} months)", partition, retentionMonths);
+            }
+        }
+    }
+
+    private String partitionName(YearMonth month) {
+        return PARTITION_PREFIX + month.format(PARTITION_SUFFIX);
+    }
+
+    private YearMonth parseMonth(String partition) {
+        if (!partition.startsWith(PARTITION_PREFIX)) {
+            return null; // e.g. chat_history_default
+        }
+        try {
+            return YearMonth.parse(partition.substring(PARTITION_PREFIX.length()), PARTITION_SUFFIX);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package io.github.avew.oya.service;
+
+import io.github.avew.oya.constants.ResponseCodes;
+import io.github.avew.oya.dto.CursorPage;
+import io.github.avew.oya.entity.ChatHistory;
+import io.github.avew.oya.repository.ChatHistoryRepository;
+import io.github.avew.oya.util.CursorCodec;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+@Service
+@RequiredArgsConstructor
+public class ChatHistoryService {
+
+    private static final int MAX_PAGE_SIZE = 100;
+
+    private final ChatHistoryRepository chatHistoryRepository;
+    private final MessageService messageService;
+
+    /**
+     * A user's chat history, newest first, one keyset page at a time
+     */
+    public CursorPage<ChatHistory> getHistory(String userId, int limit, String cursor) {
+        int pageSize = Math.min(Math.max(limit, 1), MAX_PAGE_SIZE);
+        String[] position = decodeHistoryCursor(cursor);
+
+        // Fetch one extra row to know whether another page exists
+        List<ChatHistory> rows = chatHistoryRepository.findHistoryPage(userId,
+                position != null ? position[0] : null,
+                position != null ? position[1] : null,
+                pageSize + 1);
+
+        boolean hasMore = rows.size() > pageSize;
+        List<ChatHistory> items = rows.stream().limit(pageSize).toList();
+
+        String nextCursor = null;
+        if (hasMore) {
+            ChatHistory last = items.get(items.size() - 1);
+            nextCursor = CursorCodec.encode(last.getCreatedAt(), last.getId());
+        }
+
+        return CursorPage.<ChatHistory>builder()
+                .items(items)
+                .nextCursor(nextCursor)
+                .hasMore(hasMore)
+                .build();
+    }
+
+    private String[] decodeHistoryCursor(String cursor) {
+        try {
+            return CursorCodec.decodeCreatedAtId(cursor);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(
+                messageService.getMessage(ResponseCodes.ValidationError.INVALID_CURSOR, new Object[]{cursor})
+            );
+        }
+    }
+}
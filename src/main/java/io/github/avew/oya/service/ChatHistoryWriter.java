@@ -0,0 +1,177 @@
+package io.github.avew.oya.service;
+
+import io.github.avew.oya.entity.ChatHistory;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind persistence for chat history: records are buffered in a bounded queue and inserted
+ * in JDBC batches by a background writer. When the buffer is full the caller waits briefly, then
+ * writes its record itself. Remaining records are flushed when the application stops.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ChatHistoryWriter implements SmartLifecycle {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO chat_history (id, user_id, message, response, prompt_tokens, completion_tokens, "
+                    + "embedding_tokens, latency_ms, created_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final int MAX_WRITE_ATTEMPTS = 3;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ExecutorService virtualThreadExecutor;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.chat.history-writer.buffer-size:10000}")
+    private int bufferSize;
+
+    @Value("${app.chat.history-writer.batch-size:100}")
+    private int batchSize;
+
+    @Value("${app.chat.history-writer.flush-interval:1s}")
+    private Duration flushInterval;
+
+    @Value("${app.chat.history-writer.offer-timeout:100ms}")
+    private Duration offerTimeout;
+
+    private BlockingQueue<ChatHistory> buffer;
+    private Counter directWrites;
+    private Counter failedRecords;
+    private volatile boolean running;
+    private Future<?> drainTask;
+
+    @PostConstruct
+    void init() {
+        buffer = new ArrayBlockingQueue<>(bufferSize);
+        directWrites = Counter.builder("oya.chat_history.direct_writes")
+                .description("Chat history records written on the request thread because the buffer was full")
+                .register(meterRegistry);
+        failedRecords = Counter.builder("oya.chat_history.failed_records")
+                .description("Chat history records that could not be persisted")
+                .register(meterRegistry);
+        Gauge.builder("oya.chat_history.buffer.size", buffer, BlockingQueue::size)
+                .description("Chat history records waiting to be written").register(meterRegistry);
+    }
+
+    public void submit(ChatHistory chatHistory) {
+        // Assigned here because the batch insert bypasses Hibernate's generators
+        if (chatHistory.getId() == null) {
+            chatHistory.setId(UUID.randomUUID());
+        }
+        if (chatHistory.getCreatedAt() == null) {
+            chatHistory.setCreatedAt(LocalDateTime.now());
+        }
+
+        try {
+            if (running && buffer.offer(chatHistory, offerTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        // Buffer full or writer stopped: persist on the caller's thread
+        directWrites.increment();
+        write(List.of(chatHistory));
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        drainTask = virtualThreadExecutor.submit(this::drainLoop);
+        log.info("Chat history writer started (buffer: {}, batch: {})", bufferSize, batchSize);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (drainTask != null) {
+            try {
+                drainTask.get(flushInterval.toMillis() * 2, TimeUnit.MILLISECONDS);
+            } catch (Exception e) {
+                log.warn("Chat history writer did not stop cleanly", e);
+            }
+        }
+
+        // Flush whatever is left so records survive a graceful shutdown
+        List<ChatHistory> batch = new ArrayList<>(batchSize);
+        while (buffer.drainTo(batch, batchSize) > 0) {
+            write(batch);
+            batch.clear();
+        }
+        log.info("Chat history writer stopped");
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        // Stop after the web server so in-flight requests can still enqueue their history
+        return 0;
+    }
+
+    private void drainLoop() {
+        List<ChatHistory> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                ChatHistory first = buffer.poll(flushInterval.toMillis(), TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                buffer.drainTo(batch, batchSize - 1);
+                write(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(List<ChatHistory> batch) {
+        List<Object[]> rows = batch.stream()
+                .map(history -> new Object[]{
+                        history.getId(), history.getUserId(), history.getMessage(), history.getResponse(),
+                        history.getPromptTokens(), history.getCompletionTokens(), history.getEmbeddingTokens(),
+                        history.getLatencyMs(), history.getCreatedAt()})
+                .toList();
+
+        for (int attempt = 1; attempt <= MAX_WRITE_ATTEMPTS; attempt++) {
+            try {
+                jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+                return;
+            } catch (Exception e) {
+                log.warn("Error writing {} chat history records (attempt {}/{})",
+                        rows.size(), attempt, MAX_WRITE_ATTEMPTS, e);
+            }
+        }
+
+        failedRecords.increment(rows.size());
+        log.error("Dropping {} chat history records after {} attempts", rows.size(), MAX_WRITE_ATTEMPTS);
+    }
+}
@@ -4,32 +4,61 @@ import com.theokanning.openai.completion.chat.ChatCompletionRequest;
 import com.theokanning.openai.completion.chat.ChatMessage;
 import com.theokanning.openai.completion.chat.ChatMessageRole;
 import com.theokanning.openai.service.OpenAiService;
+import io.github.avew.oya.dto.BatchChatRequest;
+import io.github.avew.oya.dto.BatchChatResult;
 import io.github.avew.oya.dto.ChatRequest;
 import io.github.avew.oya.dto.ChatResponse;
 import io.github.avew.oya.dto.DocumentSearchResult;
+import io.github.avew.oya.dto.SearchFilter;
 import io.github.avew.oya.entity.ChatHistory;
-import io.github.avew.oya.entity.Document;
 import io.github.avew.oya.entity.DocumentChunk;
-import io.github.avew.oya.repository.ChatHistoryRepository;
+import io.github.avew.oya.exception.ChatCapacityExceededException;
+import io.github.avew.oya.exception.ChatRateLimitedException;
+import io.github.avew.oya.util.TokenEstimator;
+import io.github.avew.oya.util.VectorUtils;
+import io.reactivex.disposables.Disposable;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class ChatService {
 
-    private final ChatHistoryRepository chatHistoryRepository;
+    private static final String ENDPOINT_CHAT = "chat";
+    private static final String ENDPOINT_CHAT_STREAM = "chat_stream";
+    private static final String ENDPOINT_CHAT_BATCH = "chat_batch";
+
+    private final ChatHistoryWriter chatHistoryWriter;
     private final DocumentService documentService;
-    private final RedisTemplate<String, Object> redisTemplate;
+    private final PromptContextBuilder promptContextBuilder;
+    private final ConversationMemoryService conversationMemoryService;
+    private final ExecutorService virtualThreadExecutor;
+    private final SemanticAnswerCache semanticAnswerCache;
+    private final CorpusVersionService corpusVersionService;
+    private final ChatConcurrencyGuard chatConcurrencyGuard;
+    private final UsageMetricsService usageMetricsService;
 
     @Value("${openai.api-key}")
     private String openAiApiKey;
@@ -37,39 +66,63 @@ public class ChatService {
     @Value("${openai.model:gpt-3.5-turbo}")
     private String chatModel;
 
-    private static final String REDIS_HISTORY_KEY = "chat_history:";
-    private static final int MAX_HISTORY_SIZE = 10;
-    private static final int MAX_CONTEXT_DOCUMENTS = 3;
+    @Value("${app.chat.context.max-chunks:8}")
+    private int maxContextChunks;
 
-    public ChatResponse chat(ChatRequest request) {
-        log.info("Processing chat request for user: {}", request.getUserId());
+    @Value("${app.chat.stream-timeout:120s}")
+    private Duration streamTimeout;
 
-        try {
-            // Get conversation history from Redis
-            List<ChatMessage> conversationHistory = getConversationHistory(request.getUserId());
+    @Value("${app.chat.batch.retrieval-concurrency:16}")
+    private int batchRetrievalConcurrency;
 
-            // Add user message to history
-            conversationHistory.add(new ChatMessage(ChatMessageRole.USER.value(), request.getMessage()));
+    @Value("${app.chat.batch.completion-concurrency:8}")
+    private int batchCompletionConcurrency;
 
-            // Perform semantic search for relevant documents
-            List<Document> relevantDocuments = searchRelevantDocuments(request.getMessage());
 
-            // Build context from documents
-            String documentContext = buildDocumentContext(relevantDocuments);
-
-            // Create system prompt with context
-            String systemPrompt = buildSystemPrompt(documentContext);
+    public ChatResponse chat(ChatRequest request) {
+        log.info("Processing chat request for user: {}", request.getUserId());
 
-            // Prepare messages for OpenAI
-            List<ChatMessage> messages = new ArrayList<>();
-            messages.add(new ChatMessage(ChatMessageRole.SYSTEM.value(), systemPrompt));
-            messages.addAll(conversationHistory);
+        // Retries and double submits of the same message share one turn (one completion, one history write)
+        String requestKey = request.getUserId() + "|" + semanticAnswerCache.scope(request.toSearchFilter())
+                + "|" + request.getMessage();
+        return chatConcurrencyGuard.coalesce(requestKey, () -> {
+            try (ChatConcurrencyGuard.Permit ignored = chatConcurrencyGuard.acquireUserPermit(request.getUserId())) {
+                return processChat(request);
+            }
+        });
+    }
 
-            // Call OpenAI Chat Completion
-            String aiResponse = callOpenAiChatCompletion(messages);
+    private ChatResponse processChat(ChatRequest request) {
+        long startedAt = System.nanoTime();
+        try {
+            // Build system prompt with document context plus conversation history
+            PreparedChat prepared = prepareChat(request, ENDPOINT_CHAT);
+
+            String aiResponse;
+            long promptTokens = 0;
+            long completionTokens = 0;
+            if (prepared.cachedAnswer() != null) {
+                aiResponse = prepared.cachedAnswer();
+            } else {
+                // Call OpenAI Chat Completion
+                CompletionResult completion;
+                long completionStartedAt = System.nanoTime();
+                try (ChatConcurrencyGuard.Permit ignored = chatConcurrencyGuard.acquireCompletionPermit()) {
+                    completion = callOpenAiChatCompletion(prepared.messages());
+                }
+                usageMetricsService.recordStage(ENDPOINT_CHAT, "completion", System.nanoTime() - completionStartedAt);
+                aiResponse = completion.content();
+                promptTokens = completion.promptTokens();
+                completionTokens = completion.completionTokens();
+                recordCompletionUsage(ENDPOINT_CHAT, promptTokens, completionTokens);
+                if (completion.successful()) {
+                    cacheAnswer(prepared, aiResponse);
+                }
+            }
 
             // Save conversation to Redis and database
-            saveConversationHistory(request.getUserId(), request.getMessage(), aiResponse);
+            saveConversationHistory(finishTurn(ENDPOINT_CHAT, request, aiResponse, prepared,
+                    promptTokens, completionTokens, startedAt));
 
             // Build response
             ChatResponse response = ChatResponse.builder()
@@ -81,6 +134,8 @@ public class ChatService {
             log.info("Chat response generated for user: {}", request.getUserId());
             return response;
 
+        } catch (ChatCapacityExceededException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Error processing chat request for user: {}", request.getUserId(), e);
             return ChatResponse.builder()
@@ -91,33 +146,402 @@ public class ChatService {
         }
     }
 
-    @SuppressWarnings("unchecked")
-    private List<ChatMessage> getConversationHistory(String userId) {
-        String key = REDIS_HISTORY_KEY + userId;
-        List<ChatMessage> history = new ArrayList<>();
+    /**
+     * Stream the completion to the client as server-sent events: "token" events carry content deltas,
+     * a final "done" event carries the full ChatResponse. History is saved once the stream completes;
+     * a client disconnect cancels the upstream OpenAI call.
+     */
+    public SseEmitter streamChat(ChatRequest request) {
+        log.info("Processing streaming chat request for user: {}", request.getUserId());
+        long startedAt = System.nanoTime();
+        SseEmitter emitter = new SseEmitter(streamTimeout.toMillis());
+
+        // Permits are held until the stream ends, however it ends
+        List<ChatConcurrencyGuard.Permit> permits = new CopyOnWriteArrayList<>();
+        AtomicReference<Disposable> subscription = new AtomicReference<>();
+        Runnable cleanup = () -> {
+            Disposable upstream = subscription.get();
+            if (upstream != null) {
+                upstream.dispose();
+            }
+            permits.forEach(ChatConcurrencyGuard.Permit::close);
+        };
+        emitter.onCompletion(cleanup);
+        emitter.onTimeout(cleanup);
+        emitter.onError(error -> cleanup.run());
 
         try {
-            List<Object> redisHistory = redisTemplate.opsForList().range(key, 0, -1);
-            if (redisHistory != null) {
-                for (Object item : redisHistory) {
-                    if (item instanceof ChatMessage) {
-                        history.add((ChatMessage) item);
-                    }
-                }
+            permits.add(chatConcurrencyGuard.acquireUserPermit(request.getUserId()));
+            PreparedChat prepared = prepareChat(request, ENDPOINT_CHAT_STREAM);
+
+            if (prepared.cachedAnswer() != null) {
+                emitter.send(SseEmitter.event().name("token").data(prepared.cachedAnswer()));
+                completeStream(emitter, finishTurn(ENDPOINT_CHAT_STREAM, request, prepared.cachedAnswer(), prepared,
+                        0, 0, startedAt));
+                return emitter;
             }
+
+            if (openAiApiKey == null || openAiApiKey.equals("your-api-key-here")) {
+                log.warn("OpenAI API key not configured, returning mock response");
+                String reply = "I'm sorry, but I'm not properly configured to process your request. Please check the OpenAI API key configuration.";
+                emitter.send(SseEmitter.event().name("token").data(reply));
+                completeStream(emitter, finishTurn(ENDPOINT_CHAT_STREAM, request, reply, prepared, 0, 0, startedAt));
+                return emitter;
+            }
+
+            permits.add(chatConcurrencyGuard.acquireCompletionPermit());
+            OpenAiService openAiService = new OpenAiService(openAiApiKey);
+
+            ChatCompletionRequest completionRequest = ChatCompletionRequest.builder()
+                    .model(chatModel)
+                    .messages(prepared.messages())
+                    .maxTokens(1000)
+                    .temperature(0.7)
+                    .stream(true)
+                    .build();
+
+            StringBuilder reply = new StringBuilder();
+            long completionStartedAt = System.nanoTime();
+            subscription.set(openAiService.streamChatCompletion(completionRequest)
+                    .subscribe(
+                            chunk -> {
+                                if (chunk.getChoices() == null || chunk.getChoices().isEmpty()
+                                        || chunk.getChoices().get(0).getMessage() == null) {
+                                    return;
+                                }
+                                String token = chunk.getChoices().get(0).getMessage().getContent();
+                                if (token != null && !token.isEmpty()) {
+                                    reply.append(token);
+                                    // Throws if the client went away, which cancels the upstream stream
+                                    emitter.send(SseEmitter.event().name("token").data(token));
+                                }
+                            },
+                            error -> {
+                                log.error("Error streaming OpenAI Chat Completion for user: {}", request.getUserId(), error);
+                                sendStreamError(emitter, "I'm sorry, I encountered an error while processing your request. Please try again.");
+                            },
+                            () -> {
+                                usageMetricsService.recordStage(ENDPOINT_CHAT_STREAM, "completion",
+                                        System.nanoTime() - completionStartedAt);
+                                // Streamed chunks carry no usage block, so stream token counts are estimated
+                                long promptTokens = prepared.messages().stream()
+                                        .mapToLong(message -> TokenEstimator.estimate(message.getContent()))
+                                        .sum();
+                                long completionTokens = TokenEstimator.estimate(reply.toString());
+                                recordCompletionUsage(ENDPOINT_CHAT_STREAM, promptTokens, completionTokens);
+                                cacheAnswer(prepared, reply.toString());
+                                completeStream(emitter, finishTurn(ENDPOINT_CHAT_STREAM, request, reply.toString(),
+                                        prepared, promptTokens, completionTokens, startedAt));
+                            }));
+
+        } catch (ChatRateLimitedException | ChatCapacityExceededException e) {
+            log.warn("Rejecting streaming chat request for user: {}: {}", request.getUserId(), e.getTitle());
+            cleanup.run();
+            sendStreamError(emitter, "Too many requests are in progress. Please try again shortly.");
+        } catch (Exception e) {
+            log.error("Error processing streaming chat request for user: {}", request.getUserId(), e);
+            cleanup.run();
+            emitter.completeWithError(e);
+        }
+
+        return emitter;
+    }
+
+    private void sendStreamError(SseEmitter emitter, String message) {
+        try {
+            emitter.send(SseEmitter.event().name("error").data(message));
+            emitter.complete();
+        } catch (Exception sendError) {
+            emitter.completeWithError(sendError);
+        }
+    }
+
+    /**
+     * Answer many standalone questions in one call. Questions are embedded with multi-input requests,
+     * repeated questions are answered once, retrieval runs in parallel and completions run with bounded
+     * concurrency. Results go to the sink as soon as they are ready (possibly concurrently, out of order);
+     * conversation memory is not used or updated.
+     * <p>
+     * The batch counts as one of the user's concurrent turns: {@code permit} comes from
+     * {@link #reserveBatch(String)} and is released when the batch finishes.
+     */
+    public void chatBatch(BatchChatRequest request, ChatConcurrencyGuard.Permit permit, Consumer<BatchChatResult> sink) {
+        try (permit) {
+            answerBatch(request, sink);
+        }
+    }
+
+    /**
+     * Take the user's turn permit for a batch. Called on the request thread so an over-limit user is
+     * rejected before the streamed response starts.
+     */
+    public ChatConcurrencyGuard.Permit reserveBatch(String userId) {
+        return chatConcurrencyGuard.acquireUserPermit(userId);
+    }
+
+    private void answerBatch(BatchChatRequest request, Consumer<BatchChatResult> sink) {
+        log.info("Processing batch chat request for user: {}, questions: {}",
+                request.getUserId(), request.getQuestions().size());
+        long startedAt = System.nanoTime();
+
+        SearchFilter filter = request.toSearchFilter();
+        String cacheScope = semanticAnswerCache.scope(filter);
+        long corpusGeneration = corpusVersionService.currentGeneration();
+
+        // Group positions of repeated questions (ignoring case and whitespace) so each is answered once
+        List<String> questions = request.getQuestions();
+        Map<String, List<Integer>> positionsByQuestion = new LinkedHashMap<>();
+        for (int i = 0; i < questions.size(); i++) {
+            String key = questions.get(i).trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+            positionsByQuestion.computeIfAbsent(key, k -> new ArrayList<>()).add(i);
+        }
+        List<List<Integer>> groups = new ArrayList<>(positionsByQuestion.values());
+        List<String> uniqueQuestions = groups.stream().map(group -> questions.get(group.get(0))).toList();
+
+        DocumentService.EmbeddingBatch embeddingBatch = documentService.embedAll(uniqueQuestions, ENDPOINT_CHAT_BATCH);
+        List<String> embeddings = embeddingBatch.vectors();
+        // Usage is only reported per request, so each question is charged by its share of the input length
+        long totalQuestionChars = uniqueQuestions.stream().mapToLong(String::length).sum();
+
+        Semaphore retrievalPermits = new Semaphore(batchRetrievalConcurrency);
+        Semaphore completionPermits = new Semaphore(batchCompletionConcurrency);
+        AtomicBoolean aborted = new AtomicBoolean();
+
+        List<CompletableFuture<Void>> tasks = new ArrayList<>(groups.size());
+        for (int u = 0; u < groups.size(); u++) {
+            String question = uniqueQuestions.get(u);
+            String queryEmbedding = embeddings.get(u);
+            List<Integer> positions = groups.get(u);
+            long embeddingTokens = totalQuestionChars == 0 ? 0
+                    : Math.round((double) embeddingBatch.tokens() * question.length() / totalQuestionChars);
+
+            tasks.add(CompletableFuture
+                    .supplyAsync(() -> aborted.get() ? null : answerBatchQuestion(question, queryEmbedding, filter,
+                            cacheScope, corpusGeneration, retrievalPermits, completionPermits), virtualThreadExecutor)
+                    .exceptionally(e -> {
+                        log.error("Error answering batch question for user: {}", request.getUserId(), e);
+                        return new CompletionResult("I'm sorry, I encountered an error while processing your request. Please try again.",
+                                false, 0, 0);
+                    })
+                    .thenAccept(result -> {
+                        if (result == null || aborted.get()) {
+                            return;
+                        }
+                        if (result.successful()) {
+                            chatHistoryWriter.submit(ChatHistory.builder()
+                                    .userId(request.getUserId())
+                                    .message(question)
+                                    .response(result.content())
+                                    .promptTokens((int) result.promptTokens())
+                                    .completionTokens((int) result.completionTokens())
+                                    .embeddingTokens((int) embeddingTokens)
+                                    .latencyMs(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt))
+                                    .build());
+                        }
+                        try {
+                            for (int position : positions) {
+                                sink.accept(BatchChatResult.builder()
+                                        .index(position)
+                                        .question(questions.get(position))
+                                        .reply(result.content())
+                                        .successful(result.successful())
+                                        .timestamp(System.currentTimeMillis())
+                                        .build());
+                            }
+                        } catch (RuntimeException e) {
+                            // Client went away: skip the questions that have not started yet
+                            aborted.set(true);
+                            throw e;
+                        }
+                    }));
+        }
+
+        try {
+            CompletableFuture.allOf(tasks.toArray(CompletableFuture[]::new)).join();
+        } finally {
+            usageMetricsService.recordStage(ENDPOINT_CHAT_BATCH, "total", System.nanoTime() - startedAt);
+        }
+        log.info("Batch chat completed for user: {}, questions: {}, unique: {}",
+                request.getUserId(), questions.size(), groups.size());
+    }
+
+    private CompletionResult answerBatchQuestion(String question, String queryEmbedding, SearchFilter filter,
+                                                 String cacheScope, long corpusGeneration,
+                                                 Semaphore retrievalPermits, Semaphore completionPermits) {
+        float[] questionEmbedding = semanticAnswerCache.isEnabled() && queryEmbedding != null
+                ? VectorUtils.parse(queryEmbedding) : null;
+        Optional<SemanticAnswerCache.CachedAnswer> cached =
+                semanticAnswerCache.lookup(cacheScope, questionEmbedding, corpusGeneration);
+        if (cached.isPresent()) {
+            return new CompletionResult(cached.get().answer(), true, 0, 0);
+        }
+
+        List<DocumentSearchResult> relevantChunks;
+        retrievalPermits.acquireUninterruptibly();
+        try {
+            long retrievalStartedAt = System.nanoTime();
+            relevantChunks = searchRelevantChunks(question, queryEmbedding, filter);
+            usageMetricsService.recordStage(ENDPOINT_CHAT_BATCH, "retrieval", System.nanoTime() - retrievalStartedAt);
+        } finally {
+            retrievalPermits.release();
+        }
+
+        List<ChatMessage> messages = List.of(
+                new ChatMessage(ChatMessageRole.SYSTEM.value(), buildSystemPrompt(promptContextBuilder.build(relevantChunks))),
+                new ChatMessage(ChatMessageRole.USER.value(), question));
+
+        CompletionResult completion;
+        completionPermits.acquireUninterruptibly();
+        try (ChatConcurrencyGuard.Permit ignored = chatConcurrencyGuard.acquireCompletionPermit()) {
+            long completionStartedAt = System.nanoTime();
+            completion = callOpenAiChatCompletion(messages);
+            usageMetricsService.recordStage(ENDPOINT_CHAT_BATCH, "completion", System.nanoTime() - completionStartedAt);
+        } finally {
+            completionPermits.release();
+        }
+        recordCompletionUsage(ENDPOINT_CHAT_BATCH, completion.promptTokens(), completion.completionTokens());
+
+        if (completion.successful()) {
+            List<UUID> citedChunkIds = relevantChunks.stream()
+                    .map(result -> result.getDocumentChunk().getId())
+                    .toList();
+            semanticAnswerCache.put(cacheScope, questionEmbedding, completion.content(), citedChunkIds, corpusGeneration);
+        }
+        return completion;
+    }
+
+    private void completeStream(SseEmitter emitter, ChatHistory turn) {
+        saveConversationHistory(turn);
+
+        ChatResponse response = ChatResponse.builder()
+                .reply(turn.getResponse())
+                .userId(turn.getUserId())
+                .timestamp(System.currentTimeMillis())
+                .build();
+        try {
+            emitter.send(SseEmitter.event().name("done").data(response, MediaType.APPLICATION_JSON));
+            emitter.complete();
         } catch (Exception e) {
-            log.warn("Error retrieving conversation history from Redis for user: {}", userId, e);
+            log.debug("Client disconnected before the final event for user: {}", turn.getUserId());
+            emitter.completeWithError(e);
+        }
+        log.info("Streaming chat response completed for user: {}", turn.getUserId());
+    }
+
+    /**
+     * Prompt messages for a turn, or a cached answer when the semantic cache already knows one
+     */
+    private record PreparedChat(List<ChatMessage> messages, String cachedAnswer, String cacheScope,
+                                float[] questionEmbedding, List<UUID> citedChunkIds, long corpusGeneration,
+                                boolean firstTurn, long embeddingTokens) {
+    }
+
+    private record CompletionResult(String content, boolean successful, long promptTokens, long completionTokens) {
+    }
+
+    private PreparedChat prepareChat(ChatRequest request, String endpoint) {
+        SearchFilter filter = request.toSearchFilter();
+
+        // Get conversation history from Redis on a virtual thread while the question is embedded on this one
+        CompletableFuture<ConversationMemoryService.ConversationMemory> historyFuture = CompletableFuture.supplyAsync(
+                () -> conversationMemoryService.load(request.getUserId()), virtualThreadExecutor);
+
+        // Generation is read before retrieval so a cached answer is never tagged newer than its context
+        long corpusGeneration = corpusVersionService.currentGeneration();
+        DocumentService.Embedding embedding;
+        try {
+            embedding = documentService.embedQuery(request.getMessage());
+        } catch (RuntimeException e) {
+            historyFuture.cancel(true);
+            throw e;
+        }
+        String queryEmbedding = embedding.vector();
+        float[] questionEmbedding = semanticAnswerCache.isEnabled() ? VectorUtils.parse(queryEmbedding) : null;
+        String cacheScope = semanticAnswerCache.scope(filter);
+
+        ConversationMemoryService.ConversationMemory memory = historyFuture.join();
+        List<ChatMessage> conversationHistory = memory.messages();
+        // Only standalone questions are answered from cache; follow-ups depend on the conversation
+        boolean firstTurn = memory.isEmpty();
+        if (firstTurn) {
+            Optional<SemanticAnswerCache.CachedAnswer> cached =
+                    semanticAnswerCache.lookup(cacheScope, questionEmbedding, corpusGeneration);
+            if (cached.isPresent()) {
+                log.info("Answering from semantic cache for user: {}", request.getUserId());
+                return new PreparedChat(null, cached.get().answer(), cacheScope, questionEmbedding,
+                        cached.get().citedChunkIds(), corpusGeneration, true, embedding.tokens());
+            }
+        }
+
+        // Perform semantic search for relevant chunks
+        long retrievalStartedAt = System.nanoTime();
+        List<DocumentSearchResult> relevantChunks = searchRelevantChunks(request.getMessage(), queryEmbedding, filter);
+        usageMetricsService.recordStage(endpoint, "retrieval", System.nanoTime() - retrievalStartedAt);
+
+        // Add user message to history
+        conversationHistory.add(new ChatMessage(ChatMessageRole.USER.value(), request.getMessage()));
+
+        // Pack the retrieved chunks into the context token budget
+        String documentContext = promptContextBuilder.build(relevantChunks);
+
+        // Create system prompt with context
+        String systemPrompt = buildSystemPrompt(documentContext);
+
+        // Prepare messages for OpenAI
+        List<ChatMessage> messages = new ArrayList<>();
+        messages.add(new ChatMessage(ChatMessageRole.SYSTEM.value(), systemPrompt));
+        if (memory.summary() != null && !memory.summary().isBlank()) {
+            messages.add(new ChatMessage(ChatMessageRole.SYSTEM.value(),
+                    "Ringkasan percakapan sebelumnya:\n" + memory.summary()));
         }
+        messages.addAll(conversationHistory);
+
+        List<UUID> citedChunkIds = relevantChunks.stream()
+                .map(result -> result.getDocumentChunk().getId())
+                .toList();
+        return new PreparedChat(messages, null, cacheScope, questionEmbedding, citedChunkIds, corpusGeneration, firstTurn,
+                embedding.tokens());
+    }
+
+    private void recordCompletionUsage(String endpoint, long promptTokens, long completionTokens) {
+        usageMetricsService.recordTokens(endpoint, chatModel, UsageMetricsService.TOKENS_PROMPT, promptTokens);
+        usageMetricsService.recordTokens(endpoint, chatModel, UsageMetricsService.TOKENS_COMPLETION, completionTokens);
+        if (promptTokens > 0) {
+            usageMetricsService.recordPromptSize(endpoint, chatModel, promptTokens);
+        }
+    }
+
+    /**
+     * Record the turn's total latency and build its history row with the usage it consumed
+     */
+    private ChatHistory finishTurn(String endpoint, ChatRequest request, String reply, PreparedChat prepared,
+                                   long promptTokens, long completionTokens, long startedAt) {
+        long elapsed = System.nanoTime() - startedAt;
+        usageMetricsService.recordStage(endpoint, "total", elapsed);
+        return ChatHistory.builder()
+                .userId(request.getUserId())
+                .message(request.getMessage())
+                .response(reply)
+                .promptTokens((int) promptTokens)
+                .completionTokens((int) completionTokens)
+                .embeddingTokens((int) prepared.embeddingTokens())
+                .latencyMs(TimeUnit.NANOSECONDS.toMillis(elapsed))
+                .build();
+    }
 
-        return history;
+    private void cacheAnswer(PreparedChat prepared, String answer) {
+        if (prepared.firstTurn() && answer != null && !answer.isBlank()) {
+            semanticAnswerCache.put(prepared.cacheScope(), prepared.questionEmbedding(), answer,
+                    prepared.citedChunkIds(), prepared.corpusGeneration());
+        }
     }
 
-    private List<Document> searchRelevantDocuments(String message) {
+    private List<DocumentSearchResult> searchRelevantChunks(String message, String queryEmbedding, SearchFilter filter) {
         log.info("Searching relevant documents for query: '{}'", message);
 
         try {
             // Use vector search with hybrid approach for better results
-            List<DocumentSearchResult> searchResults = documentService.searchDocumentChunksWithScores(message, MAX_CONTEXT_DOCUMENTS);
+            List<DocumentSearchResult> searchResults = documentService.searchDocumentChunksWithScores(message, queryEmbedding, maxContextChunks, filter);
 
             // Log detailed embedding scores for each result
             log.info("Found {} document search results", searchResults.size());
@@ -140,35 +564,15 @@ public class ChatService {
                 log.info("  - Token Count: {}", chunk.getTokenCount());
             }
 
-            return searchResults.stream()
-                    .map(result -> result.getDocumentChunk().getDocument())
-                    .distinct()
-                    .limit(MAX_CONTEXT_DOCUMENTS)
-                    .toList();
+            return searchResults;
 
         } catch (Exception e) {
             log.warn("Error searching relevant documents with vector search, falling back to text search", e);
             // Fallback to regular text search
             try {
-                List<DocumentChunk> chunks = documentService.searchDocumentChunks(message, MAX_CONTEXT_DOCUMENTS);
-                log.info("Fallback search found {} chunks", chunks.size());
-
-                for (int i = 0; i < chunks.size(); i++) {
-                    DocumentChunk chunk = chunks.get(i);
-                    log.info("Fallback Result #{}: Document ID: {}, Chunk Index: {}, Content Preview: {}",
-                        i + 1,
-                        chunk.getDocument() != null ? chunk.getDocument().getId() : "N/A",
-                        chunk.getChunkIndex(),
-                        chunk.getContent().length() > 100 ?
-                        chunk.getContent().substring(0, 100) + "..." :
-                        chunk.getContent());
-                }
-
-                return chunks.stream()
-                        .map(DocumentChunk::getDocument)
-                        .distinct()
-                        .limit(MAX_CONTEXT_DOCUMENTS)
-                        .toList();
+                List<DocumentSearchResult> fallbackResults = documentService.searchDocumentChunksByKeyword(message, maxContextChunks, filter);
+                log.info("Fallback search found {} chunks", fallbackResults.size());
+                return fallbackResults;
             } catch (Exception fallbackError) {
                 log.warn("Error with fallback search", fallbackError);
                 return new ArrayList<>();
@@ -176,36 +580,6 @@ public class ChatService {
         }
     }
 
-    private String buildDocumentContext(List<Document> documents) {
-        if (documents.isEmpty()) {
-            return "No relevant documents found.";
-        }
-
-        StringBuilder context = new StringBuilder();
-        context.append("Relevant documents:\n");
-
-        for (int i = 0; i < documents.size(); i++) {
-            Document doc = documents.get(i);
-            context.append("Document ").append(i + 1).append(" (")
-                   .append(doc.getFilename()).append("):\n");
-
-            // Get the most relevant chunks for this document
-            List<DocumentChunk> chunks = documentService.getDocumentChunks(doc.getId());
-            chunks.stream()
-                    .limit(2) // Limit to 2 chunks per document
-                    .forEach(chunk -> {
-                        String content = chunk.getContent();
-                        if (content.length() > 300) {
-                            content = content.substring(0, 300) + "...";
-                        }
-                        context.append(content).append("\n");
-                    });
-            context.append("\n");
-        }
-
-        return context.toString();
-    }
-
     private String buildSystemPrompt(String documentContext) {
         return """
                 Anda adalah seorang Support Agent yang profesional dan membantu. Tugas Anda adalah membantu pengguna dengan menjawab pertanyaan mereka berdasarkan dokumen yang telah diupload.
@@ -227,11 +601,11 @@ public class ChatService {
                 """.formatted(documentContext);
     }
 
-    private String callOpenAiChatCompletion(List<ChatMessage> messages) {
+    private CompletionResult callOpenAiChatCompletion(List<ChatMessage> messages) {
         try {
             if (openAiApiKey == null || openAiApiKey.equals("your-api-key-here")) {
                 log.warn("OpenAI API key not configured, returning mock response");
-                return "I'm sorry, but I'm not properly configured to process your request. Please check the OpenAI API key configuration.";
+                return new CompletionResult("I'm sorry, but I'm not properly configured to process your request. Please check the OpenAI API key configuration.", false, 0, 0);
             }
 
             OpenAiService openAiService = new OpenAiService(openAiApiKey);
@@ -245,49 +619,33 @@ public class ChatService {
 
             var result = openAiService.createChatCompletion(request);
 
+            long promptTokens = result.getUsage() != null ? result.getUsage().getPromptTokens() : 0;
+            long completionTokens = result.getUsage() != null ? result.getUsage().getCompletionTokens() : 0;
+
             if (result.getChoices() != null && !result.getChoices().isEmpty()) {
-                return result.getChoices().get(0).getMessage().getContent();
+                return new CompletionResult(result.getChoices().get(0).getMessage().getContent(), true,
+                        promptTokens, completionTokens);
             }
 
-            return "I'm sorry, I couldn't generate a response. Please try again.";
+            return new CompletionResult("I'm sorry, I couldn't generate a response. Please try again.", false,
+                    promptTokens, completionTokens);
 
         } catch (Exception e) {
             log.error("Error calling OpenAI Chat Completion", e);
-            return "I'm sorry, I encountered an error while processing your request. Please try again.";
+            return new CompletionResult("I'm sorry, I encountered an error while processing your request. Please try again.", false, 0, 0);
         }
     }
 
-    private void saveConversationHistory(String userId, String userMessage, String aiResponse) {
+    private void saveConversationHistory(ChatHistory chatHistory) {
         try {
-            // Save to database
-            ChatHistory chatHistory = ChatHistory.builder()
-                    .userId(userId)
-                    .message(userMessage)
-                    .response(aiResponse)
-                    .build();
-
-            chatHistoryRepository.save(chatHistory);
+            // Persist to database through the write-behind buffer
+            chatHistoryWriter.submit(chatHistory);
 
             // Save to Redis for quick access
-            String key = REDIS_HISTORY_KEY + userId;
-
-            // Add user message
-            redisTemplate.opsForList().rightPush(key, new ChatMessage(ChatMessageRole.USER.value(), userMessage));
-
-            // Add AI response
-            redisTemplate.opsForList().rightPush(key, new ChatMessage(ChatMessageRole.ASSISTANT.value(), aiResponse));
-
-            // Trim history to max size
-            Long size = redisTemplate.opsForList().size(key);
-            if (size != null && size > MAX_HISTORY_SIZE * 2) { // *2 because we store both user and assistant messages
-                redisTemplate.opsForList().trim(key, size - MAX_HISTORY_SIZE * 2, -1);
-            }
-
-            // Set expiration (24 hours)
-            redisTemplate.expire(key, Duration.ofHours(24));
+            conversationMemoryService.append(chatHistory.getUserId(), chatHistory.getMessage(), chatHistory.getResponse());
 
         } catch (Exception e) {
-            log.error("Error saving conversation history for user: {}", userId, e);
+            log.error("Error saving conversation history for user: {}", chatHistory.getUserId(), e);
         }
     }
 }
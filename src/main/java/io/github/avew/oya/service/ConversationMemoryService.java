@@ -0,0 +1,313 @@
+package io.github.avew.oya.service;
+
+import com.theokanning.openai.completion.chat.ChatCompletionRequest;
+import com.theokanning.openai.completion.chat.ChatMessage;
+import com.theokanning.openai.completion.chat.ChatMessageRole;
+import com.theokanning.openai.service.OpenAiService;
+import io.github.avew.oya.config.ChatMessageRedisSerializer;
+import io.github.avew.oya.util.TokenEstimator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.GenericToStringSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Conversation memory in Redis, bounded by tokens rather than turns: the prompt gets the most recent
+ * messages that fit the token budget, and older messages are folded into a rolling summary stored
+ * next to the history list. Summarization runs in the background, off the request path.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ConversationMemoryService {
+
+    // Versioned with the entry encoding; entries under the old JSON key simply expire
+    private static final String REDIS_HISTORY_KEY = "chat_history:v2:";
+    private static final String REDIS_SUMMARY_KEY = "chat_summary:";
+    private static final String REDIS_COMPACTION_LOCK_KEY = "chat_summary_lock:";
+    private static final Duration HISTORY_TTL = Duration.ofHours(24);
+    private static final Duration COMPACTION_LOCK_TTL = Duration.ofMinutes(2);
+
+    // RPUSH + LTRIM + EXPIRE in one atomic round trip
+    private static final RedisScript<Long> APPEND_SCRIPT = new DefaultRedisScript<>("""
+            redis.call('RPUSH', KEYS[1], ARGV[1], ARGV[2])
+            redis.call('LTRIM', KEYS[1], -tonumber(ARGV[3]), -1)
+            redis.call('EXPIRE', KEYS[1], ARGV[4])
+            return redis.call('LLEN', KEYS[1])
+            """, Long.class);
+
+    // Replaces the summary and drops the summarized messages in one step, but only if the list still starts
+    // with exactly those messages; a concurrent append may have trimmed the head at the max-messages cap
+    private static final RedisScript<Long> COMPACT_SCRIPT = new DefaultRedisScript<>("""
+            local count = #ARGV - 2
+            local head = redis.call('LRANGE', KEYS[1], 0, count - 1)
+            if #head ~= count then
+                return 0
+            end
+            for i = 1, count do
+                if head[i] ~= ARGV[i + 2] then
+                    return 0
+                end
+            end
+            redis.call('SET', KEYS[2], ARGV[1], 'EX', ARGV[2])
+            redis.call('LTRIM', KEYS[1], count, -1)
+            return 1
+            """, Long.class);
+
+    private static final ChatMessageRedisSerializer MESSAGE_SERIALIZER = new ChatMessageRedisSerializer();
+
+    private final RedisTemplate<String, ChatMessage> chatMessageRedisTemplate;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final ExecutorService virtualThreadExecutor;
+    private final UsageMetricsService usageMetricsService;
+
+    @Value("${openai.api-key}")
+    private String openAiApiKey;
+
+    @Value("${openai.model:gpt-3.5-turbo}")
+    private String chatModel;
+
+    @Value("${app.chat.memory.token-budget:1500}")
+    private int tokenBudget;
+
+    @Value("${app.chat.memory.max-messages:100}")
+    private int maxMessages;
+
+    @Value("${app.chat.memory.summary-max-tokens:300}")
+    private int summaryMaxTokens;
+
+    /**
+     * @param messages       the budget-trimmed messages for the prompt
+     * @param storedMessages length of the stored history before trimming
+     */
+    public record ConversationMemory(String summary, List<ChatMessage> messages, int storedMessages) {
+        public boolean isEmpty() {
+            // Judged on the stored history: a long previous answer may leave nothing within the budget
+            return summary == null && storedMessages == 0;
+        }
+    }
+
+    /**
+     * Load the rolling summary plus the most recent messages that fit in the token budget
+     */
+    public ConversationMemory load(String userId) {
+        List<ChatMessage> history = new ArrayList<>();
+        String summary = null;
+        try {
+            // History list and summary in a single pipelined round trip
+            byte[] historyKey = (REDIS_HISTORY_KEY + userId).getBytes(StandardCharsets.UTF_8);
+            byte[] summaryKey = (REDIS_SUMMARY_KEY + userId).getBytes(StandardCharsets.UTF_8);
+            List<Object> results = chatMessageRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                connection.listCommands().lRange(historyKey, 0, -1);
+                connection.stringCommands().get(summaryKey);
+                return null;
+            }, RedisSerializer.byteArray());
+
+            if (results.get(0) instanceof List<?> entries) {
+                for (Object entry : entries) {
+                    ChatMessage message = entry instanceof byte[] bytes ? MESSAGE_SERIALIZER.deserialize(bytes) : null;
+                    if (message != null) {
+                        history.add(message);
+                    }
+                }
+            }
+            if (results.get(1) instanceof byte[] bytes) {
+                summary = new String(bytes, StandardCharsets.UTF_8);
+            }
+        } catch (Exception e) {
+            log.warn("Error retrieving conversation history from Redis for user: {}", userId, e);
+        }
+
+        int start = firstMessageWithinBudget(history);
+        List<ChatMessage> recent = new ArrayList<>(history.subList(start, history.size()));
+        if (recent.isEmpty() && !history.isEmpty()) {
+            // The newest message alone is over budget; keep it truncated so a follow-up still has its context
+            ChatMessage newest = history.get(history.size() - 1);
+            String content = newest.getContent();
+            recent.add(new ChatMessage(newest.getRole(),
+                    content.substring(0, Math.min(content.length(), TokenEstimator.charsFor(tokenBudget))) + "..."));
+        }
+        return new ConversationMemory(summary, recent, history.size());
+    }
+
+    public void append(String userId, String userMessage, String aiResponse) {
+        try {
+            // Hard cap on stored messages; the token budget is normally reached long before this
+            chatMessageRedisTemplate.execute(APPEND_SCRIPT, RedisSerializer.byteArray(),
+                    new GenericToStringSerializer<>(Long.class),
+                    List.of(REDIS_HISTORY_KEY + userId),
+                    MESSAGE_SERIALIZER.serialize(new ChatMessage(ChatMessageRole.USER.value(), userMessage)),
+                    MESSAGE_SERIALIZER.serialize(new ChatMessage(ChatMessageRole.ASSISTANT.value(), aiResponse)),
+                    String.valueOf(maxMessages).getBytes(StandardCharsets.UTF_8),
+                    String.valueOf(HISTORY_TTL.toSeconds()).getBytes(StandardCharsets.UTF_8));
+        } catch (Exception e) {
+            log.error("Error saving conversation history to Redis for user: {}", userId, e);
+            return;
+        }
+
+        CompletableFuture.runAsync(() -> compact(userId), virtualThreadExecutor);
+    }
+
+    /**
+     * Fold the messages that no longer fit the budget into the rolling summary, then drop them from the list
+     */
+    private void compact(String userId) {
+        String lockKey = REDIS_COMPACTION_LOCK_KEY + userId;
+        try {
+            // One summarizer per user across all nodes
+            Boolean locked = stringRedisTemplate.opsForValue().setIfAbsent(lockKey, "1", COMPACTION_LOCK_TTL);
+            if (!Boolean.TRUE.equals(locked)) {
+                return;
+            }
+        } catch (Exception e) {
+            log.warn("Error acquiring summary lock for user: {}", userId, e);
+            return;
+        }
+
+        try {
+            List<byte[]> entries = readRawHistory(userId);
+            // Undecodable entries count as empty messages so positions keep matching the stored list
+            List<ChatMessage> history = entries.stream()
+                    .map(entry -> {
+                        ChatMessage message = MESSAGE_SERIALIZER.deserialize(entry);
+                        return message != null ? message : new ChatMessage(ChatMessageRole.USER.value(), "");
+                    })
+                    .toList();
+            int overflow = firstMessageWithinBudget(history);
+            // Summarize whole exchanges (user + assistant)
+            if (overflow % 2 == 1) {
+                overflow = Math.min(overflow + 1, history.size());
+            }
+            // Always leave the latest exchange in the list; load() truncates it if it is over budget
+            overflow = Math.min(overflow, Math.max(history.size() - 2, 0));
+            if (overflow == 0) {
+                return;
+            }
+
+            String previousSummary = stringRedisTemplate.opsForValue().get(REDIS_SUMMARY_KEY + userId);
+            String summary = summarize(previousSummary, history.subList(0, overflow));
+            if (summary == null) {
+                // Keep the messages; compaction is retried after the next turn
+                return;
+            }
+
+            List<byte[]> args = new ArrayList<>(overflow + 2);
+            args.add(summary.getBytes(StandardCharsets.UTF_8));
+            args.add(String.valueOf(HISTORY_TTL.toSeconds()).getBytes(StandardCharsets.UTF_8));
+            args.addAll(entries.subList(0, overflow));
+            Long compacted = chatMessageRedisTemplate.execute(COMPACT_SCRIPT, RedisSerializer.byteArray(),
+                    new GenericToStringSerializer<>(Long.class),
+                    List.of(REDIS_HISTORY_KEY + userId, REDIS_SUMMARY_KEY + userId),
+                    args.toArray());
+            if (!Long.valueOf(1L).equals(compacted)) {
+                // The list changed underneath; this summary is discarded and compaction retried after the next turn
+                log.debug("Conversation history changed during compaction for user: {}", userId);
+                return;
+            }
+            log.debug("Compacted {} messages into the conversation summary for user: {}", overflow, userId);
+        } catch (Exception e) {
+            log.error("Error compacting conversation history for user: {}", userId, e);
+        } finally {
+            try {
+                stringRedisTemplate.delete(lockKey);
+            } catch (Exception e) {
+                log.warn("Error releasing summary lock for user: {}", userId, e);
+            }
+        }
+    }
+
+    private String summarize(String previousSummary, List<ChatMessage> messages) {
+        if (openAiApiKey == null || openAiApiKey.equals("your-api-key-here")) {
+            log.warn("OpenAI API key not configured, skipping conversation summary");
+            return null;
+        }
+
+        StringBuilder transcript = new StringBuilder();
+        if (previousSummary != null && !previousSummary.isBlank()) {
+            transcript.append("Ringkasan sebelumnya:\n").append(previousSummary).append("\n\n");
+        }
+        transcript.append("Percakapan lanjutan:\n");
+        for (ChatMessage message : messages) {
+            if (message.getContent() == null || message.getContent().isBlank()) {
+                continue;
+            }
+            transcript.append(message.getRole()).append(": ").append(message.getContent()).append("\n");
+        }
+
+        String instruction = """
+                Ringkas percakapan antara pengguna dan Support Agent berikut menjadi satu ringkasan singkat.
+                Pertahankan fakta penting, pertanyaan yang belum terjawab, dan keputusan yang sudah diambil.
+                Jawab hanya dengan ringkasannya.
+                """;
+
+        try {
+            OpenAiService openAiService = new OpenAiService(openAiApiKey);
+            ChatCompletionRequest request = ChatCompletionRequest.builder()
+                    .model(chatModel)
+                    .messages(List.of(
+                            new ChatMessage(ChatMessageRole.SYSTEM.value(), instruction),
+                            new ChatMessage(ChatMessageRole.USER.value(), transcript.toString())))
+                    .maxTokens(summaryMaxTokens)
+                    .temperature(0.2)
+                    .build();
+
+            long startedAt = System.nanoTime();
+            var result = openAiService.createChatCompletion(request);
+            usageMetricsService.recordStage("summary", "completion", System.nanoTime() - startedAt);
+            if (result.getUsage() != null) {
+                usageMetricsService.recordTokens("summary", chatModel, UsageMetricsService.TOKENS_PROMPT,
+                        result.getUsage().getPromptTokens());
+                usageMetricsService.recordTokens("summary", chatModel, UsageMetricsService.TOKENS_COMPLETION,
+                        result.getUsage().getCompletionTokens());
+            }
+            if (result.getChoices() != null && !result.getChoices().isEmpty()) {
+                return result.getChoices().get(0).getMessage().getContent();
+            }
+            return null;
+        } catch (Exception e) {
+            log.error("Error generating conversation summary", e);
+            return null;
+        }
+    }
+
+    /**
+     * Stored history entries as raw bytes, oldest first, so they can be matched exactly when compacting
+     */
+    private List<byte[]> readRawHistory(String userId) {
+        byte[] historyKey = (REDIS_HISTORY_KEY + userId).getBytes(StandardCharsets.UTF_8);
+        List<byte[]> entries = chatMessageRedisTemplate.execute((RedisCallback<List<byte[]>>) connection ->
+                connection.listCommands().lRange(historyKey, 0, -1));
+        return entries != null ? entries : List.of();
+    }
+
+    /**
+     * Index of the oldest message that still fits when filling the budget from the newest message backwards
+     */
+    private int firstMessageWithinBudget(List<ChatMessage> history) {
+        int usedTokens = 0;
+        int start = history.size();
+        for (int i = history.size() - 1; i >= 0; i--) {
+            int tokens = TokenEstimator.estimate(history.get(i).getContent());
+            if (usedTokens + tokens > tokenBudget) {
+                break;
+            }
+            usedTokens += tokens;
+            start = i;
+        }
+        return start;
+    }
+}
@@ -0,0 +1,66 @@
+package io.github.avew.oya.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+
+/**
+ * Cluster-wide corpus generation counter stored in Redis. It is bumped whenever the set of
+ * searchable chunks changes, so anything cached against an older generation is never served.
+ * <p>
+ * Each bump also marks the corpus as recently changed for app.datasource.max-lag, the window in which
+ * a read replica may not have replayed the change yet.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CorpusVersionService {
+
+    private static final String GENERATION_KEY = "corpus:generation";
+    private static final String RECENTLY_CHANGED_KEY = "corpus:recently_changed";
+
+    /** Returned when Redis is unreachable; callers must not cache against it */
+    public static final long UNKNOWN_GENERATION = -1L;
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    @Value("${app.datasource.max-lag:10s}")
+    private Duration replicaMaxLag;
+
+    public long currentGeneration() {
+        try {
+            String value = stringRedisTemplate.opsForValue().get(GENERATION_KEY);
+            return value != null ? Long.parseLong(value) : 0L;
+        } catch (Exception e) {
+            log.warn("Error reading corpus generation from Redis", e);
+            return UNKNOWN_GENERATION;
+        }
+    }
+
+    /**
+     * Whether the corpus changed within the replica lag tolerance; true when Redis can't tell
+     */
+    public boolean recentlyChanged() {
+        try {
+            return Boolean.TRUE.equals(stringRedisTemplate.hasKey(RECENTLY_CHANGED_KEY));
+        } catch (Exception e) {
+            log.warn("Error reading corpus change marker from Redis", e);
+            return true;
+        }
+    }
+
+    public void bump() {
+        try {
+            // Marked before the increment, so whoever sees the new generation also sees the marker
+            stringRedisTemplate.opsForValue().set(RECENTLY_CHANGED_KEY, "1", replicaMaxLag);
+            Long generation = stringRedisTemplate.opsForValue().increment(GENERATION_KEY);
+            log.debug("Corpus generation bumped to {}", generation);
+        } catch (Exception e) {
+            log.error("Error bumping corpus generation", e);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package io.github.avew.oya.service;
+
+import io.github.avew.oya.entity.Document;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostCommitInsertEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * Keeps the node-local Document second-level cache coherent across nodes when
+ * app.jpa.second-level-cache.redis-sync is enabled: committed Document changes are published on a Redis
+ * channel and every other node evicts that entry and its cached query results. Entity saves are picked up
+ * from Hibernate's post-commit events; bulk (native) updates are published by the caller via documentChanged.
+ * When disabled, other nodes see changes once their cached entries expire.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DocumentCacheSync implements PostCommitInsertEventListener, PostCommitUpdateEventListener,
+        PostCommitDeleteEventListener {
+
+    private static final String CHANNEL = "oya:l2:document";
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final RedisConnectionFactory redisConnectionFactory;
+    private final String nodeId = UUID.randomUUID().toString();
+    private RedisMessageListenerContainer listenerContainer;
+
+    @Value("${app.jpa.second-level-cache.redis-sync:false}")
+    private boolean redisSync;
+
+    @PostConstruct
+    void init() {
+        if (!redisSync) {
+            return;
+        }
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry().getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_COMMIT_INSERT, this);
+        registry.appendListeners(EventType.POST_COMMIT_UPDATE, this);
+        registry.appendListeners(EventType.POST_COMMIT_DELETE, this);
+
+        listenerContainer = new RedisMessageListenerContainer();
+        listenerContainer.setConnectionFactory(redisConnectionFactory);
+        listenerContainer.addMessageListener((message, pattern) ->
+                onRemoteChange(new String(message.getBody(), StandardCharsets.UTF_8)), new ChannelTopic(CHANNEL));
+        listenerContainer.afterPropertiesSet();
+        listenerContainer.start();
+        log.info("Document second-level cache sync enabled on channel {}", CHANNEL);
+    }
+
+    @PreDestroy
+    void shutdown() throws Exception {
+        if (listenerContainer != null) {
+            listenerContainer.destroy();
+        }
+    }
+
+    /**
+     * Tell other nodes a document row changed; call after the transaction that changed it has committed
+     */
+    public void documentChanged(UUID documentId) {
+        if (!redisSync || documentId == null) {
+            return;
+        }
+        try {
+            stringRedisTemplate.convertAndSend(CHANNEL, nodeId + ":" + documentId);
+        } catch (Exception e) {
+            log.warn("Failed to publish cache invalidation for document {}", documentId, e);
+        }
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        // A new row can change cached query results elsewhere even though no entity entry is stale
+        if (event.getEntity() instanceof Document document) {
+            documentChanged(document.getId());
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (event.getEntity() instanceof Document document) {
+            documentChanged(document.getId());
+        }
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        if (event.getEntity() instanceof Document document) {
+            documentChanged(document.getId());
+        }
+    }
+
+    @Override
+    public void onPostInsertCommitFailed(PostInsertEvent event) {
+    }
+
+    @Override
+    public void onPostUpdateCommitFailed(PostUpdateEvent event) {
+    }
+
+    @Override
+    public void onPostDeleteCommitFailed(PostDeleteEvent event) {
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return persister.getMappedClass() == Document.class;
+    }
+
+    private void onRemoteChange(String payload) {
+        int separator = payload.indexOf(':');
+        if (separator < 0 || payload.substring(0, separator).equals(nodeId)) {
+            return;
+        }
+        try {
+            UUID documentId = UUID.fromString(payload.substring(separator + 1));
+            entityManagerFactory.getCache().evict(Document.class, documentId);
+            // Query results are validated against local update timestamps, which never saw the remote change
+            entityManagerFactory.unwrap(SessionFactoryImplementor.class).getCache().evictQueryRegions();
+        } catch (IllegalArgumentException e) {
+            log.warn("Ignoring malformed cache invalidation message: {}", payload);
+        }
+    }
+}
@@ -2,29 +2,64 @@ package io.github.avew.oya.service;
 
 import com.theokanning.openai.embedding.EmbeddingRequest;
 import com.theokanning.openai.service.OpenAiService;
+import io.github.avew.oya.config.ReplicaRoutingDataSource;
 import io.github.avew.oya.constants.ResponseCodes;
 import io.github.avew.oya.entity.Document;
 import io.github.avew.oya.entity.DocumentChunk;
+import io.github.avew.oya.exception.DocumentConflictException;
+import io.github.avew.oya.exception.DocumentNotFoundException;
 import io.github.avew.oya.exception.DocumentProcessingException;
 import io.github.avew.oya.exception.FileValidationException;
 import io.github.avew.oya.repository.DocumentRepository;
 import io.github.avew.oya.repository.DocumentChunkRepository;
+import io.github.avew.oya.dto.CursorPage;
+import io.github.avew.oya.dto.DocumentSearchHit;
+import io.github.avew.oya.dto.DocumentChunkExport;
 import io.github.avew.oya.dto.DocumentSearchResult;
+import io.github.avew.oya.dto.DocumentSummary;
+import io.github.avew.oya.dto.SearchFilter;
+import io.github.avew.oya.util.CursorCodec;
+import io.github.avew.oya.util.TokenEstimator;
+import io.github.avew.oya.util.VectorUtils;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.tika.Tika;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.Assert;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 @Service
 @RequiredArgsConstructor
@@ -34,7 +69,20 @@ public class DocumentService {
     private final DocumentRepository documentRepository;
     private final DocumentChunkRepository documentChunkRepository;
     private final MessageService messageService;
+    private final MmrRerankService mmrRerankService;
+    private final NamespaceIndexService namespaceIndexService;
+    private final SearchResultCache searchResultCache;
+    private final CorpusVersionService corpusVersionService;
+    private final PlatformTransactionManager transactionManager;
+    private final ExecutorService virtualThreadExecutor;
+    private final UsageMetricsService usageMetricsService;
+    private final JdbcTemplate jdbcTemplate;
+    private final DocumentCacheSync documentCacheSync;
+    private final ObjectProvider<ReplicaRoutingDataSource> replicaRoutingDataSource;
     private final Tika tika = new Tika();
+    private TransactionTemplate readOnlyTransaction;
+    private TransactionTemplate primaryReadTransaction;
+    private TransactionTemplate writeTransaction;
 
     @Value("${openai.api-key}")
     private String openAiApiKey;
@@ -42,83 +90,322 @@ public class DocumentService {
     @Value("${openai.embedding-model:text-embedding-3-small}")
     private String embeddingModel;
 
+    @Value("${openai.embedding-batch-size:256}")
+    private int embeddingBatchSize;
+
+    @Value("${app.export.fetch-size:500}")
+    private int exportFetchSize;
+
     @Value("${app.upload.dir:./uploads}")
     private String uploadDir;
 
+    @Value("${app.search.two-stage.enabled:true}")
+    private boolean twoStageSearchEnabled;
+
+    @Value("${app.search.two-stage.oversampling-factor:10}")
+    private int oversamplingFactor;
+
+    @Value("${app.search.two-stage.min-candidates:100}")
+    private int minCandidates;
+
+    @Value("${app.search.two-stage.max-candidates:1000}")
+    private int maxCandidates;
+
+    @Value("${app.search.iterative-scan:relaxed_order}")
+    private String iterativeScan;
+
     private static final int MAX_CHUNK_SIZE = 1000; // tokens per chunk
     private static final int CHUNK_OVERLAP = 200; // overlap between chunks
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int MAX_FILE_SIZE_MB = 50;
+    static final long MAX_FILE_SIZE_BYTES = MAX_FILE_SIZE_MB * 1024L * 1024L;
+    private static final int HNSW_MAX_EF_SEARCH = 1000; // pgvector upper bound for hnsw.ef_search
+
+    @PostConstruct
+    void init() {
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+        // Not read-only, so replica routing keeps it on the primary
+        primaryReadTransaction = new TransactionTemplate(transactionManager);
+        writeTransaction = new TransactionTemplate(transactionManager);
+    }
 
-    public Document storeFile(MultipartFile file) throws IOException {
+    public Document storeFile(MultipartFile file, String namespace) throws IOException {
         log.info("Processing file: {}", file.getOriginalFilename());
 
         // Validate file
         validateFile(file);
+        String documentNamespace = resolveNamespace(namespace);
+
+        // Save file to disk; size and checksum come from the bytes actually written
+        StoredFile stored = saveFileToStorage(file);
+
+        return registerStoredFile(stored.path(), file.getOriginalFilename(), file.getContentType(),
+                stored.size(), stored.checksum(), documentNamespace);
+    }
+
+    /**
+     * Upload a revised file as the next version of a document. The new version is ingested re-using the
+     * embeddings of unchanged chunks and replaces the previous one for search once it has completed.
+     */
+    public Document storeNewVersion(UUID previousId, MultipartFile file) throws IOException {
+        Document previous = documentRepository.findById(previousId)
+                .orElseThrow(() -> new DocumentNotFoundException(previousId.toString()));
+        if (previous.getStatus() == Document.DocumentStatus.PROCESSING) {
+            throw new DocumentConflictException(previousId.toString());
+        }
+        if (previous.getStatus() == Document.DocumentStatus.SUPERSEDED
+                || documentRepository.existsByParentDocumentId(previousId)) {
+            throw new DocumentConflictException(ResponseCodes.DocumentError.NEWER_VERSION_EXISTS, previousId.toString());
+        }
+
+        validateFile(file);
+        StoredFile stored = saveFileToStorage(file);
+
+        Document document;
+        try {
+            document = documentRepository.save(Document.builder()
+                    .filename(file.getOriginalFilename())
+                    .contentType(file.getContentType())
+                    .fileSize(stored.size())
+                    .uploadPath(stored.path().toString())
+                    .checksum(stored.checksum())
+                    .namespace(previous.getNamespace())
+                    .version(previous.getVersion() + 1)
+                    .parentDocumentId(previousId)
+                    .status(Document.DocumentStatus.PROCESSING)
+                    .build());
+        } catch (DataIntegrityViolationException e) {
+            // Another revision of the same version won the unique parent index
+            deleteStoredFile(stored.path().toString());
+            throw new DocumentConflictException(ResponseCodes.DocumentError.NEWER_VERSION_EXISTS, previousId.toString());
+        }
+        log.info("Document {} saved as version {} of {}", document.getId(), document.getVersion(), previousId);
+
+        CompletableFuture.runAsync(() -> processDocumentContent(document), virtualThreadExecutor);
+        return document;
+    }
+
+    /**
+     * Record a file already persisted under the upload directory and start ingesting it in the background
+     */
+    Document registerStoredFile(Path path, String filename, String contentType, long size, String checksum,
+                                String namespace) {
+        Document savedDocument = saveStoredFile(path, filename, contentType, size, checksum, namespace);
+
+        // Process document content asynchronously
+        CompletableFuture.runAsync(() -> processDocumentContent(savedDocument), virtualThreadExecutor);
+
+        return savedDocument;
+    }
 
-        // Save file to disk
-        String uploadPath = saveFileToStorage(file);
+    /**
+     * Like registerStoredFile, but ingests on the calling thread and returns the document in its final status
+     */
+    Document ingestStoredFile(Path path, String filename, String contentType, long size, String checksum,
+                              String namespace) {
+        return processDocumentContent(saveStoredFile(path, filename, contentType, size, checksum, namespace));
+    }
 
+    private Document saveStoredFile(Path path, String filename, String contentType, long size, String checksum,
+                                    String namespace) {
         // Create document metadata
         Document document = Document.builder()
-                .filename(file.getOriginalFilename())
-                .contentType(file.getContentType())
-                .fileSize(file.getSize())
-                .uploadPath(uploadPath)
+                .filename(filename)
+                .contentType(contentType)
+                .fileSize(size)
+                .uploadPath(path.toString())
+                .checksum(checksum)
+                .namespace(namespace)
                 .status(Document.DocumentStatus.PROCESSING)
                 .build();
 
         Document savedDocument = documentRepository.save(document);
         log.info("Document metadata saved with ID: {}", savedDocument.getId());
+        return savedDocument;
+    }
 
-        // Process document content asynchronously
-        CompletableFuture.runAsync(() -> processDocumentContent(savedDocument, file));
+    /**
+     * Delete a document with one statement (its chunks follow through ON DELETE CASCADE); the stored file
+     * and cached search results are cleaned up in the background
+     */
+    public void deleteDocument(UUID id) {
+        Document document = documentRepository.findById(id)
+                .orElseThrow(() -> new DocumentNotFoundException(id.toString()));
 
-        return savedDocument;
+        Boolean deleted = writeTransaction.execute(status -> {
+            if (documentRepository.deleteIfNotProcessing(id) == 0) {
+                return false;
+            }
+            // Deleting the version that replaced another makes that one searchable again. The status loaded
+            // above may be stale (second-level cache), so don't depend on it: the unique parent index means the
+            // parent can only have been superseded by this document, and restoreSuperseded touches nothing else.
+            if (document.getParentDocumentId() != null) {
+                documentRepository.restoreSuperseded(document.getParentDocumentId());
+            }
+            return true;
+        });
+        if (!Boolean.TRUE.equals(deleted)) {
+            // Deleting mid-ingestion would race with the chunk inserts
+            throw new DocumentConflictException(id.toString());
+        }
+        log.info("Document deleted: {}", id);
+        // Bulk statements bypass entity events, so other nodes' cached entries are invalidated explicitly
+        documentCacheSync.documentChanged(id);
+        documentCacheSync.documentChanged(document.getParentDocumentId());
+
+        CompletableFuture.runAsync(() -> {
+            // Removed chunks must not be served from cached retrieval results or answers
+            corpusVersionService.bump();
+            deleteStoredFile(document.getUploadPath());
+        }, virtualThreadExecutor);
+    }
+
+    /**
+     * Drop a document's chunks and ingest its stored file again
+     */
+    public Document reprocessDocument(UUID id) {
+        if (!documentRepository.existsById(id)) {
+            throw new DocumentNotFoundException(id.toString());
+        }
+
+        Boolean claimed = writeTransaction.execute(status -> {
+            if (documentRepository.markProcessingIfIdle(id) == 0) {
+                return false;
+            }
+            int removed = documentChunkRepository.deleteChunksByDocumentId(id);
+            log.info("Reprocessing document {}, removed {} chunks", id, removed);
+            return true;
+        });
+        if (!Boolean.TRUE.equals(claimed)) {
+            boolean superseded = documentRepository.findById(id)
+                    .map(document -> document.getStatus() == Document.DocumentStatus.SUPERSEDED)
+                    .orElse(false);
+            throw new DocumentConflictException(superseded || documentRepository.existsByParentDocumentId(id)
+                    ? ResponseCodes.DocumentError.NEWER_VERSION_EXISTS
+                    : ResponseCodes.DocumentError.STILL_PROCESSING, id.toString());
+        }
+
+        documentCacheSync.documentChanged(id);
+        Document document = documentRepository.findById(id)
+                .orElseThrow(() -> new DocumentNotFoundException(id.toString()));
+        corpusVersionService.bump();
+        CompletableFuture.runAsync(() -> processDocumentContent(document), virtualThreadExecutor);
+        return document;
+    }
+
+    private void deleteStoredFile(String uploadPath) {
+        try {
+            Files.deleteIfExists(Paths.get(uploadPath));
+        } catch (IOException e) {
+            log.warn("Could not delete stored file: {}", uploadPath, e);
+        }
     }
 
-    private void processDocumentContent(Document document, MultipartFile file) {
+    private Document processDocumentContent(Document document) {
+        long startedAt = System.nanoTime();
+        long embeddingTokens = 0;
         try {
-            // Extract text using Apache Tika
-            String content = extractTextFromFile(file);
-            log.debug("Processing file: {}", file.getOriginalFilename());
+            // Extract text using Apache Tika from the stored copy (the multipart upload is gone after the request)
+            String content = extractTextFromFile(Paths.get(document.getUploadPath()));
+            log.debug("Processing file: {}", document.getFilename());
             // Split content into chunks
             List<String> chunks = splitIntoChunks(content);
             log.debug("Split content into {} chunks", chunks.size());
-            // Process each chunk
+
+            // A new version starts from the previous version's vectors; only new or edited chunks are embedded
+            List<String> hashes = chunks.stream().map(DocumentService::contentHash).toList();
+            Map<String, String> vectorsByHash = document.getParentDocumentId() != null
+                    ? previousEmbeddings(document.getParentDocumentId())
+                    : new HashMap<>();
+            int reused = (int) hashes.stream().filter(vectorsByHash::containsKey).count();
+
+            Map<String, String> pending = new LinkedHashMap<>();
             for (int i = 0; i < chunks.size(); i++) {
-                String chunkContent = chunks.get(i);
-                log.debug("Processing chunk: {}", chunkContent);
-                // Generate embedding as vector string for pgvector
-                String embedding = generateVectorEmbedding(chunkContent);
+                if (!vectorsByHash.containsKey(hashes.get(i))) {
+                    pending.putIfAbsent(hashes.get(i), chunks.get(i));
+                }
+            }
 
-                // Calculate token count (approximate)
-                int tokenCount = estimateTokenCount(chunkContent);
+            // Embed the remaining chunks in as few requests as possible, then insert them in JDBC batches
+            EmbeddingBatch embeddings = embedBatch(new ArrayList<>(pending.values()), "ingest");
+            embeddingTokens = embeddings.tokens();
+            int next = 0;
+            for (String hash : pending.keySet()) {
+                vectorsByHash.put(hash, embeddings.vectors().get(next++));
+            }
 
-                // Create document chunk
-                DocumentChunk chunk = DocumentChunk.builder()
+            List<DocumentChunk> documentChunks = new ArrayList<>(chunks.size());
+            for (int i = 0; i < chunks.size(); i++) {
+                String chunkContent = chunks.get(i);
+                documentChunks.add(DocumentChunk.builder()
                         .document(document)
+                        .namespace(document.getNamespace())
                         .chunkIndex(i)
                         .content(chunkContent)
-                        .embedding(embedding)
-                        .tokenCount(tokenCount)
-                        .build();
-
-                documentChunkRepository.save(chunk);
+                        .contentHash(hashes.get(i))
+                        .embedding(vectorsByHash.get(hashes.get(i)))
+                        .tokenCount(estimateTokenCount(chunkContent))
+                        .build());
             }
+            documentChunkRepository.saveAll(documentChunks);
 
             // Update document status
+            long elapsed = System.nanoTime() - startedAt;
+            usageMetricsService.recordStage("ingest", "total", elapsed);
             document.setStatus(Document.DocumentStatus.COMPLETED);
+            document.setEmbeddingTokens(embeddingTokens);
+            document.setProcessingMs(TimeUnit.NANOSECONDS.toMillis(elapsed));
             document.setUpdatedAt(LocalDateTime.now());
-            documentRepository.save(document);
+            if (document.getParentDocumentId() == null) {
+                documentRepository.save(document);
+            } else {
+                // Searches only see COMPLETED documents, so flipping both rows in one transaction swaps
+                // the versions atomically
+                UUID parentId = document.getParentDocumentId();
+                writeTransaction.executeWithoutResult(status -> {
+                    documentRepository.save(document);
+                    // Nothing to retire when the previous version is already superseded (by this document, on
+                    // reprocessing; the parent index allows no other successor), FAILED or deleted. Only one
+                    // still being re-ingested would become searchable next to this version.
+                    if (documentRepository.markSuperseded(parentId) == 0
+                            && documentRepository.existsByIdAndStatus(parentId, Document.DocumentStatus.PROCESSING)) {
+                        throw new IllegalStateException("Previous version " + parentId + " is being reprocessed");
+                    }
+                });
+                documentCacheSync.documentChanged(parentId);
+            }
 
-            log.info("Document processing completed for ID: {}, chunks: {}",
-                    document.getId(), chunks.size());
+            log.info("Document processing completed for ID: {}, chunks: {} ({} embeddings reused), embedding tokens: {}",
+                    document.getId(), chunks.size(), reused, embeddingTokens);
+
+            // New searchable chunks: invalidate cached retrieval results across nodes
+            corpusVersionService.bump();
+
+            namespaceIndexService.ensurePartialIndex(document.getNamespace());
 
         } catch (Exception e) {
             log.error("Error processing document content for ID: {}", document.getId(), e);
             document.setStatus(Document.DocumentStatus.FAILED);
+            document.setEmbeddingTokens(embeddingTokens);
+            document.setProcessingMs(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt));
             document.setUpdatedAt(LocalDateTime.now());
             documentRepository.save(document);
         }
+        return document;
+    }
+
+    private Map<String, String> previousEmbeddings(UUID previousId) {
+        // Array structure: [0]=content_hash, [1]=embedding (pgvector text)
+        Map<String, String> vectors = new HashMap<>();
+        for (Object[] row : documentChunkRepository.findEmbeddingsByContentHashRaw(previousId)) {
+            vectors.putIfAbsent((String) row[0], (String) row[1]);
+        }
+        return vectors;
+    }
+
+    private static String contentHash(String content) {
+        return HexFormat.of().formatHex(newSha256().digest(content.getBytes(StandardCharsets.UTF_8)));
     }
 
     public List<DocumentChunk> searchDocumentChunks(String keyword, int limit) {
@@ -155,67 +442,217 @@ public class DocumentService {
         }
     }
 
-    public List<DocumentSearchResult> searchDocumentChunksWithScores(String query, int limit) {
+    public List<DocumentSearchResult> searchDocumentChunksWithScores(String query, int limit, SearchFilter filter) {
+        return searchDocumentChunksWithScores(query, null, limit, filter);
+    }
+
+    /**
+     * Hybrid search with a query embedding the caller already computed (pgvector format);
+     * when null the query is embedded here, after the result cache has been checked.
+     */
+    public List<DocumentSearchResult> searchDocumentChunksWithScores(String query, String precomputedEmbedding,
+                                                                     int limit, SearchFilter filter) {
+        // Identical retrieval against an unchanged corpus is served from cache, skipping the embedding call too
+        String cacheKey = searchResultCache.key(query, limit, searchMode(), filter);
+        Optional<List<DocumentSearchResult>> cached = searchResultCache.get(cacheKey);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+
         try {
-            String queryEmbedding = generateVectorEmbedding(query);
+            String queryEmbedding = precomputedEmbedding != null ? precomputedEmbedding : generateVectorEmbedding(query);
             log.debug("Searching for documents with scores: {}", queryEmbedding);
             if (queryEmbedding != null && !queryEmbedding.isEmpty()) {
-                // Get raw results from database
-                List<Object[]> rawResults = documentChunkRepository.findSimilarChunksByHybridSearchWithScoresRaw(queryEmbedding, query, limit);
-                // Convert raw results to DocumentSearchResult objects
-                // Array structure: [0]=id, [1]=document_id, [2]=chunk_index, [3]=content, [4]=token_count, [5]=created_at,
-                //                  [6]=vector_similarity, [7]=text_rank, [8]=hybrid_score
-                return rawResults.stream().map(row -> {
-                    DocumentChunk chunk = new DocumentChunk();
-                    chunk.setId(UUID.fromString(row[0].toString()));
-                    chunk.setChunkIndex((Integer) row[2]);
-                    chunk.setContent((String) row[3]);
-                    chunk.setEmbedding(null); // embedding tidak diperlukan untuk response
-                    chunk.setTokenCount((Integer) row[4]);
-
-                    // We need to fetch the document separately since it's not fully loaded
-                    UUID documentId = UUID.fromString(row[1].toString());
-                    Document document = documentRepository.findById(documentId).orElse(null);
-                    chunk.setDocument(document);
-
-                    return DocumentSearchResult.builder()
-                            .documentChunk(chunk)
-                            .vectorSimilarity(((Number) row[6]).doubleValue())
-                            .textRank(((Number) row[7]).doubleValue())
-                            .hybridScore(((Number) row[8]).doubleValue())
-                            .searchMethod("hybrid_search")
-                            .build();
-                }).toList();
-            } else {
-                // Fallback to text search without scores
-                List<DocumentChunk> chunks = documentChunkRepository.findByContentContaining(query, limit);
-                return chunks.stream()
-                        .map(chunk -> DocumentSearchResult.builder()
-                                .documentChunk(chunk)
-                                .vectorSimilarity(null)
-                                .textRank(null)
-                                .hybridScore(null)
-                                .searchMethod("text_search")
-                                .build())
+                // Fetch a wider candidate pool when MMR reranking is enabled
+                int candidateLimit = mmrRerankService.candidatePoolSize(limit);
+                String searchMethod = twoStageSearchEnabled ? "two_stage_hybrid_search" : "hybrid_search";
+
+                // Session settings (SET LOCAL) only live for one transaction, so run the search in its own
+                // transaction; the embedding call above stays outside it
+                List<Object[]> rawResults = cacheableSearchTransaction().execute(status -> {
+                    applyFilteredScanSettings(filter);
+                    if (twoStageSearchEnabled) {
+                        return findWithTwoStageSearch(queryEmbedding, query, candidateLimit, filter);
+                    }
+                    return documentChunkRepository.findSimilarChunksByHybridSearchWithScoresRaw(queryEmbedding, query,
+                            filter.getNamespace(), filter.getContentType(), filter.documentIdsAsArray(), candidateLimit);
+                });
+
+                List<DocumentSearchResult> candidates = rawResults.stream()
+                        .map(row -> toSearchResult(row, searchMethod, mmrRerankService.isEnabled()))
                         .toList();
+
+                List<DocumentSearchResult> results = mmrRerankService.rerank(candidates, limit);
+                // Only vector results are cached; text fallbacks mean embedding failed and should be retried
+                searchResultCache.put(cacheKey, results);
+                return results;
+            } else {
+                // Fallback to text search
+                return searchDocumentChunksByKeyword(query, limit, filter, "text_search");
             }
         } catch (Exception e) {
             log.warn("Hybrid search with scores failed, falling back to text search", e);
-            List<DocumentChunk> chunks = documentChunkRepository.findByContentContaining(query, limit);
-            return chunks.stream()
-                    .map(chunk -> DocumentSearchResult.builder()
-                            .documentChunk(chunk)
-                            .vectorSimilarity(null)
-                            .textRank(null)
-                            .hybridScore(null)
-                            .searchMethod("text_search_fallback")
-                            .build())
-                    .toList();
+            return searchDocumentChunksByKeyword(query, limit, filter, "text_search_fallback");
+        }
+    }
+
+    /**
+     * Transaction for a search whose results are cached under the current corpus generation. Read-only (so
+     * a replica may serve it) unless the corpus changed within the replica lag tolerance: a lagging replica
+     * would return the old corpus, and the results would be cached as if they were current.
+     */
+    private TransactionTemplate cacheableSearchTransaction() {
+        if (replicaRoutingDataSource.getIfAvailable() != null && corpusVersionService.recentlyChanged()) {
+            return primaryReadTransaction;
         }
+        return readOnlyTransaction;
+    }
+
+    public List<DocumentSearchResult> searchDocumentChunksByKeyword(String keyword, int limit, SearchFilter filter) {
+        return searchDocumentChunksByKeyword(keyword, limit, filter, "text_search");
+    }
+
+    private List<DocumentSearchResult> searchDocumentChunksByKeyword(String keyword, int limit, SearchFilter filter,
+                                                                     String searchMethod) {
+        // Read-only so the keyword scan is served by a replica when one is configured
+        List<Object[]> rows = readOnlyTransaction.execute(status ->
+                documentChunkRepository.findCompletedChunksByKeywordWithFilterRaw(keyword,
+                        filter.getNamespace(), filter.getContentType(), filter.documentIdsAsArray(), limit));
+        return rows.stream()
+                .map(row -> toSearchResult(row, searchMethod, false))
+                .toList();
     }
 
-    public List<Document> getAllDocuments() {
-        return documentRepository.findAll();
+    /**
+     * Convert a raw search row to a DocumentSearchResult. The document is a detached stub built from the
+     * joined columns, so mapping results never goes back to the database.
+     */
+    private DocumentSearchResult toSearchResult(Object[] row, String searchMethod, boolean parseEmbedding) {
+        // Array structure: [0]=id, [1]=document_id, [2]=chunk_index, [3]=content, [4]=token_count, [5]=created_at,
+        //                  [6]=vector_similarity, [7]=text_rank, [8]=hybrid_score, [9]=embedding,
+        //                  [10]=filename, [11]=namespace, [12]=content_type
+        Document document = Document.builder()
+                .id(UUID.fromString(row[1].toString()))
+                .filename((String) row[10])
+                .namespace((String) row[11])
+                .contentType((String) row[12])
+                .status(Document.DocumentStatus.COMPLETED)
+                .build();
+
+        DocumentChunk chunk = new DocumentChunk();
+        chunk.setId(UUID.fromString(row[0].toString()));
+        chunk.setDocument(document);
+        chunk.setNamespace(document.getNamespace());
+        chunk.setChunkIndex((Integer) row[2]);
+        chunk.setContent((String) row[3]);
+        chunk.setEmbedding(null); // embedding tidak diperlukan untuk response
+        chunk.setTokenCount((Integer) row[4]);
+
+        return DocumentSearchResult.builder()
+                .documentChunk(chunk)
+                .vectorSimilarity(((Number) row[6]).doubleValue())
+                .textRank(((Number) row[7]).doubleValue())
+                .hybridScore(((Number) row[8]).doubleValue())
+                .searchMethod(searchMethod)
+                .embedding(parseEmbedding ? VectorUtils.parse((String) row[9]) : null)
+                .build();
+    }
+
+    private String searchMode() {
+        return (twoStageSearchEnabled ? "two_stage_hybrid" : "hybrid") + (mmrRerankService.isEnabled() ? "+mmr" : "");
+    }
+
+    private void applyFilteredScanSettings(SearchFilter filter) {
+        if (filter.isEmpty()) {
+            return;
+        }
+        // Keep scanning the index until enough rows pass the filter instead of post-filtering ef_search rows
+        if (!"off".equalsIgnoreCase(iterativeScan)) {
+            setSearchSetting("hnsw.iterative_scan", iterativeScan);
+        }
+        // Plan with the actual filter values so a namespace's partial index can be matched
+        setSearchSetting("plan_cache_mode", "force_custom_plan");
+    }
+
+    /**
+     * Transaction-scoped search setting. The caller opens a transaction around the query only, never around
+     * the embedding call, so a failed query can't leave a rollback-only transaction behind for the fallback.
+     */
+    private void setSearchSetting(String name, String value) {
+        // Outside a transaction SET LOCAL is silently ignored and the search would run with default settings
+        Assert.state(TransactionSynchronizationManager.isActualTransactionActive(),
+                "Search settings must be applied inside the search transaction");
+        documentChunkRepository.setLocalConfig(name, value);
+    }
+
+    private List<Object[]> findWithTwoStageSearch(String queryEmbedding, String query, int limit, SearchFilter filter) {
+        // Oversample the coarse binary-quantized stage so the exact rerank keeps recall@k
+        int candidateLimit = Math.max(limit * oversamplingFactor, minCandidates);
+        candidateLimit = Math.min(candidateLimit, Math.min(maxCandidates, HNSW_MAX_EF_SEARCH));
+        candidateLimit = Math.max(candidateLimit, limit);
+
+        // HNSW returns at most ef_search rows, so widen it to the candidate set size for this transaction
+        setSearchSetting("hnsw.ef_search", String.valueOf(candidateLimit));
+
+        log.debug("Two-stage search with {} candidates for limit {}", candidateLimit, limit);
+        return documentChunkRepository.findSimilarChunksByTwoStageSearchWithScoresRaw(queryEmbedding, query,
+                filter.getNamespace(), filter.getContentType(), filter.documentIdsAsArray(), candidateLimit, limit);
+    }
+
+    /**
+     * Newest-first page of documents, optionally filtered by status and namespace
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<DocumentSummary> listDocuments(String status, String namespace, int limit, String cursor) {
+        int pageSize = Math.min(Math.max(limit, 1), MAX_PAGE_SIZE);
+        String statusFilter = status != null && !status.isBlank() ? parseStatus(status).name() : null;
+        String[] position = decodeListingCursor(cursor);
+
+        // Fetch one extra row to know whether another page exists
+        List<Object[]> rows = documentRepository.listDocumentsRaw(statusFilter, namespace,
+                position != null ? position[0] : null,
+                position != null ? position[1] : null,
+                pageSize + 1);
+
+        boolean hasMore = rows.size() > pageSize;
+        // Array structure: [0]=id, [1]=filename, [2]=content_type, [3]=file_size, [4]=status, [5]=namespace,
+        //                  [6]=created_at, [7]=updated_at, [8]=chunk_count
+        List<DocumentSummary> items = rows.stream()
+                .limit(pageSize)
+                .map(row -> DocumentSummary.builder()
+                        .id(UUID.fromString(row[0].toString()))
+                        .filename((String) row[1])
+                        .contentType((String) row[2])
+                        .fileSize(((Number) row[3]).longValue())
+                        .status(Document.DocumentStatus.valueOf((String) row[4]))
+                        .namespace((String) row[5])
+                        .createdAt(toLocalDateTime(row[6]))
+                        .updatedAt(toLocalDateTime(row[7]))
+                        .chunkCount(((Number) row[8]).longValue())
+                        .build())
+                .toList();
+
+        String nextCursor = null;
+        if (hasMore) {
+            DocumentSummary last = items.get(items.size() - 1);
+            nextCursor = CursorCodec.encode(last.getCreatedAt(), last.getId());
+        }
+
+        return CursorPage.<DocumentSummary>builder()
+                .items(items)
+                .nextCursor(nextCursor)
+                .hasMore(hasMore)
+                .build();
+    }
+
+    public Document.DocumentStatus parseStatus(String status) {
+        try {
+            return Document.DocumentStatus.valueOf(status.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(
+                messageService.getMessage(ResponseCodes.ValidationError.INVALID_STATUS, new Object[]{status})
+            );
+        }
     }
 
     public List<Document> getCompletedDocuments() {
@@ -226,33 +663,193 @@ public class DocumentService {
         return documentRepository.findById(id).orElse(null);
     }
 
-    public List<DocumentChunk> getDocumentChunks(UUID documentId) {
-        return documentChunkRepository.findByDocumentIdOrderByChunkIndex(documentId);
+    public boolean documentExists(UUID documentId) {
+        return documentRepository.existsById(documentId);
+    }
+
+    /**
+     * Stream a document's chunks in order through a forward-only cursor, so memory stays flat regardless
+     * of document size. The embedding column is only read when requested.
+     */
+    public void exportDocumentChunks(UUID documentId, boolean includeEmbedding, Consumer<DocumentChunkExport> sink) {
+        String sql = "SELECT id, document_id, chunk_index, content, token_count, created_at"
+                + (includeEmbedding ? ", embedding::text" : "")
+                + " FROM document_chunk WHERE document_id = ? ORDER BY chunk_index";
+
+        // PostgreSQL only uses a server-side cursor (fetch size) inside a transaction
+        readOnlyTransaction.executeWithoutResult(status -> jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(exportFetchSize);
+            statement.setObject(1, documentId);
+            return statement;
+        }, (RowCallbackHandler) resultSet -> sink.accept(DocumentChunkExport.builder()
+                .id(resultSet.getObject("id", UUID.class))
+                .documentId(resultSet.getObject("document_id", UUID.class))
+                .chunkIndex(resultSet.getInt("chunk_index"))
+                .content(resultSet.getString("content"))
+                .tokenCount(resultSet.getInt("token_count"))
+                .createdAt(resultSet.getObject("created_at", LocalDateTime.class))
+                .embedding(includeEmbedding ? resultSet.getString("embedding") : null)
+                .build())));
     }
 
     public List<Document> getDocumentsByStatus(Document.DocumentStatus status) {
         return documentRepository.findByStatus(status);
     }
 
-    public List<Document> searchDocuments(String keyword, int limit) {
-        return documentRepository.findDocumentsWithContentKeyword(keyword);
+    @Transactional(readOnly = true)
+    public CursorPage<DocumentSearchHit> searchDocuments(String keyword, int limit, String namespace, String cursor) {
+        int pageSize = Math.min(Math.max(limit, 1), MAX_PAGE_SIZE);
+        String[] position = decodeSearchCursor(cursor);
+
+        // Fetch one extra row to know whether another page exists
+        List<Object[]> rows = documentRepository.searchDocumentsByKeywordRaw(keyword, namespace,
+                position != null ? position[0] : null,
+                position != null ? position[1] : null,
+                position != null ? position[2] : null,
+                pageSize + 1);
+
+        boolean hasMore = rows.size() > pageSize;
+        // Array structure: [0]=id, [1]=filename, [2]=content_type, [3]=file_size, [4]=status, [5]=namespace,
+        //                  [6]=created_at, [7]=score, [8]=matching_chunks
+        List<DocumentSearchHit> items = rows.stream()
+                .limit(pageSize)
+                .map(row -> DocumentSearchHit.builder()
+                        .id(UUID.fromString(row[0].toString()))
+                        .filename((String) row[1])
+                        .contentType((String) row[2])
+                        .fileSize(((Number) row[3]).longValue())
+                        .status(Document.DocumentStatus.valueOf((String) row[4]))
+                        .namespace((String) row[5])
+                        .createdAt(toLocalDateTime(row[6]))
+                        .score(((Number) row[7]).floatValue())
+                        .matchingChunks(((Number) row[8]).longValue())
+                        .build())
+                .toList();
+
+        String nextCursor = null;
+        if (hasMore) {
+            DocumentSearchHit last = items.get(items.size() - 1);
+            nextCursor = CursorCodec.encode(last.getScore(), last.getCreatedAt(), last.getId());
+        }
+
+        return CursorPage.<DocumentSearchHit>builder()
+                .items(items)
+                .nextCursor(nextCursor)
+                .hasMore(hasMore)
+                .build();
+    }
+
+    private String[] decodeListingCursor(String cursor) {
+        try {
+            return CursorCodec.decodeCreatedAtId(cursor);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(
+                messageService.getMessage(ResponseCodes.ValidationError.INVALID_CURSOR, new Object[]{cursor})
+            );
+        }
+    }
+
+    private String[] decodeSearchCursor(String cursor) {
+        try {
+            // Cursor structure: [0]=score, [1]=created_at, [2]=id
+            String[] position = CursorCodec.decode(cursor, 3);
+            if (position != null) {
+                Float.parseFloat(position[0]);
+                LocalDateTime.parse(position[1]);
+                UUID.fromString(position[2]);
+            }
+            return position;
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new IllegalArgumentException(
+                messageService.getMessage(ResponseCodes.ValidationError.INVALID_CURSOR, new Object[]{cursor})
+            );
+        }
+    }
+
+    private LocalDateTime toLocalDateTime(Object value) {
+        if (value instanceof java.sql.Timestamp timestamp) {
+            return timestamp.toLocalDateTime();
+        }
+        return (LocalDateTime) value;
+    }
+
+    public String resolveNamespace(String namespace) {
+        if (namespace == null || namespace.isBlank()) {
+            return Document.DEFAULT_NAMESPACE;
+        }
+        if (!namespace.matches(Document.NAMESPACE_PATTERN)) {
+            throw new IllegalArgumentException(
+                messageService.getMessage(ResponseCodes.ValidationError.INVALID_NAMESPACE, new Object[]{namespace})
+            );
+        }
+        return namespace;
+    }
+
+    record StoredFile(Path path, long size, String checksum) {
     }
 
-    private String saveFileToStorage(MultipartFile file) throws IOException {
-        // Create upload directory if it doesn't exist
+    /**
+     * Stream the upload to disk in a single pass, hashing and enforcing the size limit as bytes are written.
+     * Everything after this (extraction, reprocessing) reads the stored file, never the multipart stream.
+     */
+    private StoredFile saveFileToStorage(MultipartFile file) throws IOException {
+        try (InputStream in = file.getInputStream()) {
+            return saveToStorage(in, file.getOriginalFilename());
+        }
+    }
+
+    /**
+     * Copy a stream into a new file in the upload directory; the stream is read to the size limit but not closed
+     */
+    StoredFile saveToStorage(InputStream in, String originalFilename) throws IOException {
+        Path filePath = newStoragePath(originalFilename);
+
+        MessageDigest digest = newSha256();
+        long written = 0;
+        ReadableByteChannel source = Channels.newChannel(new DigestInputStream(in, digest));
+        try (FileChannel target = FileChannel.open(filePath, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            // Ask for one byte past the limit so an oversized upload is detected without reading it all
+            long transferred;
+            while (written <= MAX_FILE_SIZE_BYTES
+                    && (transferred = target.transferFrom(source, written, MAX_FILE_SIZE_BYTES + 1 - written)) > 0) {
+                written += transferred;
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(filePath);
+            throw e;
+        }
+
+        if (written > MAX_FILE_SIZE_BYTES) {
+            Files.deleteIfExists(filePath);
+            throw new FileValidationException(
+                messageService.getMessage(ResponseCodes.FileError.SIZE_EXCEEDED, new Object[]{MAX_FILE_SIZE_MB})
+            );
+        }
+
+        return new StoredFile(filePath, written, HexFormat.of().formatHex(digest.digest()));
+    }
+
+    /**
+     * Unique destination for a new upload inside the upload directory, created if it doesn't exist
+     */
+    Path newStoragePath(String originalFilename) throws IOException {
         Path uploadPath = Paths.get(uploadDir);
         if (!Files.exists(uploadPath)) {
             Files.createDirectories(uploadPath);
         }
+        // Client-supplied names must not escape the upload directory
+        String safeName = originalFilename.replaceAll("[/\\\\]", "_");
+        return uploadPath.resolve(UUID.randomUUID() + "_" + safeName);
+    }
 
-        // Generate unique filename
-        String filename = UUID.randomUUID() + "_" + file.getOriginalFilename();
-        Path filePath = uploadPath.resolve(filename);
-
-        // Save file
-        Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
-
-        return filePath.toString();
+    static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
     }
 
     private List<String> splitIntoChunks(String content) {
@@ -293,29 +890,32 @@ public class DocumentService {
     }
 
     private int estimateTokenCount(String text) {
-        // Simple approximation: ~4 characters per token
-        return text.length() / 4;
+        return TokenEstimator.estimate(text);
     }
 
     private void validateFile(MultipartFile file) {
         if (file.isEmpty()) {
             throw new FileValidationException(messageService.getMessage(ResponseCodes.FileError.FILE_EMPTY));
         }
+        validateUpload(file.getOriginalFilename(), file.getContentType(), file.getSize(), MAX_FILE_SIZE_BYTES);
+    }
 
-        String filename = file.getOriginalFilename();
+    /**
+     * Checks shared by direct and resumable uploads; the declared size is checked against maxBytes
+     */
+    void validateUpload(String filename, String contentType, long size, long maxBytes) {
         if (filename == null) {
             throw new FileValidationException(messageService.getMessage(ResponseCodes.FileError.FILENAME_NULL));
         }
 
-        // Check file size (50MB limit)
-        if (file.getSize() > 50 * 1024 * 1024) {
+        // Check declared file size; the bytes actually written are checked again while storing
+        if (size > maxBytes) {
             throw new FileValidationException(
-                messageService.getMessage(ResponseCodes.FileError.SIZE_EXCEEDED, new Object[]{"50"})
+                messageService.getMessage(ResponseCodes.FileError.SIZE_EXCEEDED, new Object[]{maxBytes / (1024 * 1024)})
             );
         }
 
         // Check file type
-        String contentType = file.getContentType();
         List<String> allowedTypes = Arrays.asList(
             "application/pdf",
             "application/vnd.ms-excel",
@@ -332,24 +932,106 @@ public class DocumentService {
         }
     }
 
-    private String extractTextFromFile(MultipartFile file) throws IOException {
+    /**
+     * Content type guessed from the file name, for files that arrive without one (archives, directories)
+     */
+    String detectContentType(String filename) {
+        return tika.detect(filename);
+    }
+
+    private String extractTextFromFile(Path file) {
         try {
-            String extractedText = tika.parseToString(file.getInputStream());
+            String extractedText = tika.parseToString(file);
             log.debug("Extracted text length: {}", extractedText.length());
             return extractedText;
         } catch (Exception e) {
-            log.error("Error extracting text from file: {}", file.getOriginalFilename(), e);
+            log.error("Error extracting text from file: {}", file, e);
             throw new DocumentProcessingException(
                 messageService.getMessage(ResponseCodes.DocumentError.PROCESSING_FAILED), e
             );
         }
     }
 
+    /**
+     * pgvector string (null if embedding is unavailable) plus the tokens the embedding call consumed
+     */
+    public record Embedding(String vector, long tokens) {
+    }
+
+    /**
+     * Embed a search query or question; returns the pgvector string, or null if embedding is unavailable
+     */
+    public String generateQueryEmbedding(String text) {
+        return generateVectorEmbedding(text);
+    }
+
+    /**
+     * Embed a chat question, keeping the token usage for per-request accounting
+     */
+    public Embedding embedQuery(String text) {
+        return embed(text, "query");
+    }
+
+    /**
+     * Embed many texts with one multi-input request per batch; vectors are null where embedding is unavailable
+     */
+    public EmbeddingBatch embedAll(List<String> texts, String endpoint) {
+        return embedBatch(texts, endpoint);
+    }
+
+    /**
+     * pgvector strings in input order (null where embedding failed) plus the tokens all requests consumed
+     */
+    public record EmbeddingBatch(List<String> vectors, long tokens) {
+    }
+
+    private EmbeddingBatch embedBatch(List<String> texts, String endpoint) {
+        List<String> vectors = new ArrayList<>(Collections.nCopies(texts.size(), null));
+        long tokens = 0;
+        if (openAiApiKey == null || openAiApiKey.equals("your-api-key-here")) {
+            log.warn("OpenAI API key not configured, returning null embeddings");
+            return new EmbeddingBatch(vectors, 0);
+        }
+
+        OpenAiService openAiService = new OpenAiService(openAiApiKey);
+        for (int from = 0; from < texts.size(); from += embeddingBatchSize) {
+            List<String> batch = texts.subList(from, Math.min(from + embeddingBatchSize, texts.size()));
+            try {
+                EmbeddingRequest embeddingRequest = EmbeddingRequest.builder()
+                        .model(embeddingModel)
+                        .input(batch)
+                        .build();
+
+                long startedAt = System.nanoTime();
+                var result = openAiService.createEmbeddings(embeddingRequest);
+                usageMetricsService.recordStage(endpoint, "embedding", System.nanoTime() - startedAt);
+                if (result.getUsage() != null) {
+                    usageMetricsService.recordTokens(endpoint, embeddingModel, UsageMetricsService.TOKENS_EMBEDDING,
+                            result.getUsage().getPromptTokens());
+                    tokens += result.getUsage().getPromptTokens();
+                }
+
+                if (result.getData() != null) {
+                    for (var embedding : result.getData()) {
+                        vectors.set(from + embedding.getIndex(), VectorUtils.toPgVector(embedding.getEmbedding()));
+                    }
+                }
+            } catch (Exception e) {
+                log.error("Error generating vector embeddings for a batch of {} texts", batch.size(), e);
+            }
+        }
+        return new EmbeddingBatch(vectors, tokens);
+    }
+
     private String generateVectorEmbedding(String text) {
+        return embed(text, "search").vector();
+    }
+
+    private Embedding embed(String text, String endpoint) {
         try {
             if (openAiApiKey == null || openAiApiKey.equals("your-api-key-here")) {
                 log.warn("OpenAI API key not configured, returning null embedding");
-                return null;
+                return new Embedding(null, 0);
             }
 
             OpenAiService openAiService = new OpenAiService(openAiApiKey);
@@ -360,32 +1042,23 @@ public class DocumentService {
                     .input(List.of(text))
                     .build();
 
+            long startedAt = System.nanoTime();
             var result = openAiService.createEmbeddings(embeddingRequest);
+            usageMetricsService.recordStage(endpoint, "embedding", System.nanoTime() - startedAt);
+
+            long tokens = result.getUsage() != null ? result.getUsage().getPromptTokens() : TokenEstimator.estimate(text);
+            usageMetricsService.recordTokens(endpoint, embeddingModel, UsageMetricsService.TOKENS_EMBEDDING, tokens);
 
             if (result.getData() != null && !result.getData().isEmpty()) {
                 // Convert embedding to pgvector format [1.0, 2.0, 3.0, ...]
                 var embedding = result.getData().get(0).getEmbedding();
-                return formatEmbeddingForPgVector(embedding);
+                return new Embedding(VectorUtils.toPgVector(embedding), tokens);
             }
 
-            return null;
+            return new Embedding(null, tokens);
         } catch (Exception e) {
             log.error("Error generating vector embedding for text", e);
-            return null;
-        }
-    }
-
-    private String formatEmbeddingForPgVector(List<Double> embedding) {
-        // Format as pgvector array: [1.0, 2.0, 3.0, ...]
-        StringBuilder sb = new StringBuilder();
-        sb.append("[");
-        for (int i = 0; i < embedding.size(); i++) {
-            sb.append(embedding.get(i));
-            if (i < embedding.size() - 1) {
-                sb.append(",");
-            }
+            return new Embedding(null, 0);
         }
-        sb.append("]");
-        return sb.toString();
     }
 }
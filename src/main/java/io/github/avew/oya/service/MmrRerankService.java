@@ -0,0 +1,84 @@
+package io.github.avew.oya.service;
+
+import io.github.avew.oya.dto.DocumentSearchResult;
+import io.github.avew.oya.util.VectorUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Maximal marginal relevance reranking: picks results that are relevant to the query
+ * but not redundant with what has already been picked, so overlapping chunks do not
+ * all end up in the prompt.
+ */
+@Service
+@Slf4j
+public class MmrRerankService {
+
+    @Value("${app.search.mmr.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.search.mmr.lambda:0.7}")
+    private double lambda;
+
+    @Value("${app.search.mmr.candidate-pool:20}")
+    private int candidatePool;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Number of candidates to fetch from the database so MMR has room to diversify
+     */
+    public int candidatePoolSize(int limit) {
+        return enabled ? Math.max(limit, candidatePool) : limit;
+    }
+
+    public List<DocumentSearchResult> rerank(List<DocumentSearchResult> candidates, int limit) {
+        if (!enabled || candidates.size() <= 1) {
+            return candidates.stream().limit(limit).toList();
+        }
+
+        List<DocumentSearchResult> remaining = new ArrayList<>(candidates);
+        List<DocumentSearchResult> selected = new ArrayList<>(Math.min(limit, candidates.size()));
+        // Highest similarity of each remaining candidate to anything already selected
+        double[] maxSimilarityToSelected = new double[remaining.size()];
+
+        while (selected.size() < limit && !remaining.isEmpty()) {
+            int bestIndex = 0;
+            double bestScore = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < remaining.size(); i++) {
+                double redundancy = selected.isEmpty() ? 0.0 : maxSimilarityToSelected[i];
+                double score = lambda * relevance(remaining.get(i)) - (1 - lambda) * redundancy;
+                if (score > bestScore) {
+                    bestScore = score;
+                    bestIndex = i;
+                }
+            }
+
+            DocumentSearchResult picked = remaining.remove(bestIndex);
+            System.arraycopy(maxSimilarityToSelected, bestIndex + 1, maxSimilarityToSelected, bestIndex,
+                    remaining.size() - bestIndex);
+            selected.add(picked);
+
+            for (int i = 0; i < remaining.size(); i++) {
+                double similarity = VectorUtils.cosineSimilarity(picked.getEmbedding(), remaining.get(i).getEmbedding());
+                maxSimilarityToSelected[i] = Math.max(maxSimilarityToSelected[i], similarity);
+            }
+        }
+
+        log.debug("MMR selected {} of {} candidates (lambda={})", selected.size(), candidates.size(), lambda);
+        return selected;
+    }
+
+    private double relevance(DocumentSearchResult result) {
+        if (result.getHybridScore() != null) {
+            return result.getHybridScore();
+        }
+        return result.getVectorSimilarity() != null ? result.getVectorSimilarity() : 0.0;
+    }
+}
@@ -0,0 +1,106 @@
+package io.github.avew.oya.service;
+
+import io.github.avew.oya.entity.Document;
+import io.github.avew.oya.repository.DocumentChunkRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Creates a partial HNSW index per large namespace, so filtered ANN searches on a big
+ * collection walk a graph that only contains that collection's chunks.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class NamespaceIndexService {
+
+    private static final String INDEX_PREFIX = "idx_document_chunk_bq_ns_";
+
+    private final DocumentChunkRepository documentChunkRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    // Namespaces whose partial index is known to exist (or is being built) on this node
+    private final Set<String> indexedNamespaces = ConcurrentHashMap.newKeySet();
+
+    @Value("${app.search.namespace-index.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.search.namespace-index.min-chunks:50000}")
+    private long minChunks;
+
+    public void ensurePartialIndex(String namespace) {
+        if (!enabled || namespace == null || Document.DEFAULT_NAMESPACE.equals(namespace)
+                || !namespace.matches(Document.NAMESPACE_PATTERN) || indexedNamespaces.contains(namespace)) {
+            return;
+        }
+
+        try {
+            long chunkCount = documentChunkRepository.countByNamespace(namespace);
+            if (chunkCount < minChunks) {
+                return;
+            }
+            if (!indexedNamespaces.add(namespace)) {
+                return;
+            }
+
+            String indexName = indexName(namespace);
+            log.info("Namespace '{}' has {} chunks, ensuring partial index {}", namespace, chunkCount, indexName);
+
+            // A failed or interrupted concurrent build leaves an INVALID index behind, which IF NOT EXISTS would
+            // skip forever; drop it and build again unless another build is still running
+            Optional<IndexState> existing = indexState(indexName);
+            if (existing.isPresent() && existing.get().valid()) {
+                return;
+            }
+            if (existing.isPresent()) {
+                if (existing.get().building()) {
+                    // Another node is building it; look again after a later ingestion
+                    indexedNamespaces.remove(namespace);
+                    return;
+                }
+                log.warn("Dropping invalid partial index {} left by an interrupted build", indexName);
+                jdbcTemplate.execute("DROP INDEX CONCURRENTLY IF EXISTS " + indexName);
+            }
+
+            // CONCURRENTLY cannot run inside a transaction; JdbcTemplate runs this in auto-commit mode.
+            // The namespace is validated against NAMESPACE_PATTERN, so it is safe to inline as a literal.
+            jdbcTemplate.execute("CREATE INDEX CONCURRENTLY IF NOT EXISTS " + indexName + " ON document_chunk " +
+                    "USING hnsw ((binary_quantize(embedding)::bit(1536)) bit_hamming_ops) " +
+                    "WHERE namespace = '" + namespace + "'");
+        } catch (Exception e) {
+            indexedNamespaces.remove(namespace);
+            log.warn("Failed to create partial index for namespace: {}", namespace, e);
+        }
+    }
+
+    private record IndexState(boolean valid, boolean building) {
+    }
+
+    private Optional<IndexState> indexState(String indexName) {
+        List<IndexState> states = jdbcTemplate.query("""
+                SELECT i.indisvalid,
+                       EXISTS (SELECT 1 FROM pg_stat_progress_create_index p WHERE p.index_relid = c.oid)
+                FROM pg_class c
+                JOIN pg_index i ON i.indexrelid = c.oid
+                WHERE c.relname = ? AND pg_table_is_visible(c.oid)
+                """, (rs, rowNum) -> new IndexState(rs.getBoolean(1), rs.getBoolean(2)), indexName);
+        return states.stream().findFirst();
+    }
+
+    private String indexName(String namespace) {
+        // Identifiers are limited to 63 bytes; keep a readable prefix plus a hash to avoid collisions
+        String readable = namespace.toLowerCase().replaceAll("[^a-z0-9_]", "_");
+        if (readable.length() > 30) {
+            readable = readable.substring(0, 30);
+        }
+        return INDEX_PREFIX + readable + "_" + Integer.toHexString(namespace.hashCode());
+    }
+}
@@ -0,0 +1,92 @@
+package io.github.avew.oya.service;
+
+import io.github.avew.oya.dto.DocumentSearchResult;
+import io.github.avew.oya.entity.DocumentChunk;
+import io.github.avew.oya.util.TokenEstimator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Packs retrieved chunks into the prompt context: chunks are taken in ranking order until the
+ * token budget is used up, then grouped by document and printed in reading order.
+ * Works only on the search results, no additional database reads.
+ */
+@Service
+@Slf4j
+public class PromptContextBuilder {
+
+    private static final String NO_CONTEXT = "No relevant documents found.";
+
+    @Value("${app.chat.context.token-budget:1500}")
+    private int tokenBudget;
+
+    @Value("${app.chat.context.min-chunk-tokens:50}")
+    private int minChunkTokens;
+
+    public String build(List<DocumentSearchResult> results) {
+        if (results.isEmpty()) {
+            return NO_CONTEXT;
+        }
+
+        // Select chunks by rank until the budget is spent; the last one may be truncated
+        Map<UUID, List<DocumentChunk>> chunksByDocument = new LinkedHashMap<>();
+        Map<UUID, String> filenames = new LinkedHashMap<>();
+        Map<UUID, String> contents = new LinkedHashMap<>();
+        int remaining = tokenBudget;
+
+        for (DocumentSearchResult result : results) {
+            if (remaining < minChunkTokens) {
+                break;
+            }
+            DocumentChunk chunk = result.getDocumentChunk();
+            if (chunk == null || chunk.getDocument() == null || chunk.getContent() == null) {
+                continue;
+            }
+
+            String content = chunk.getContent();
+            int tokens = chunk.getTokenCount() != null && chunk.getTokenCount() > 0
+                    ? chunk.getTokenCount()
+                    : TokenEstimator.estimate(content);
+            if (tokens > remaining) {
+                content = content.substring(0, Math.min(content.length(), TokenEstimator.charsFor(remaining))) + "...";
+                tokens = remaining;
+            }
+
+            UUID documentId = chunk.getDocument().getId();
+            chunksByDocument.computeIfAbsent(documentId, id -> new ArrayList<>()).add(chunk);
+            filenames.putIfAbsent(documentId, chunk.getDocument().getFilename());
+            contents.put(chunk.getId(), content);
+            remaining -= tokens;
+        }
+
+        if (chunksByDocument.isEmpty()) {
+            return NO_CONTEXT;
+        }
+
+        StringBuilder context = new StringBuilder();
+        context.append("Relevant documents:\n");
+
+        int documentNumber = 1;
+        for (Map.Entry<UUID, List<DocumentChunk>> entry : chunksByDocument.entrySet()) {
+            context.append("Document ").append(documentNumber++).append(" (")
+                   .append(filenames.get(entry.getKey())).append("):\n");
+
+            entry.getValue().stream()
+                    .sorted(Comparator.comparing(DocumentChunk::getChunkIndex))
+                    .forEach(chunk -> context.append(contents.get(chunk.getId())).append("\n"));
+            context.append("\n");
+        }
+
+        log.debug("Packed {} documents into context using {} of {} tokens",
+                chunksByDocument.size(), tokenBudget - remaining, tokenBudget);
+        return context.toString();
+    }
+}
@@ -0,0 +1,284 @@
+package io.github.avew.oya.service;
+
+import io.github.avew.oya.constants.ResponseCodes;
+import io.github.avew.oya.dto.UploadInitRequest;
+import io.github.avew.oya.dto.UploadStatus;
+import io.github.avew.oya.entity.Document;
+import io.github.avew.oya.exception.FileValidationException;
+import io.github.avew.oya.exception.UploadSessionNotFoundException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Resumable uploads: a session is initiated with the final size, parts are PUT in any order (and in
+ * parallel) straight into their offsets of a preallocated file, and completion hands the file to
+ * ingestion. Part bytes are streamed channel to channel, so heap use does not grow with file size.
+ * Session metadata lives in a Redis hash and received parts in a Redis bitmap, both expiring after
+ * app.upload.resumable.session-ttl.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ResumableUploadService {
+
+    private static final String SESSION_KEY = "upload_session:";
+    private static final String PARTS_KEY = "upload_parts:";
+    private static final String PARTIAL_DIR = "partial";
+    private static final int CHECKSUM_BUFFER_SIZE = 64 * 1024;
+    // Partial files younger than this are kept even without a session, as initiate may still be running
+    private static final Duration ORPHAN_GRACE = Duration.ofMinutes(1);
+
+    private final DocumentService documentService;
+    private final MessageService messageService;
+    private final StringRedisTemplate stringRedisTemplate;
+
+    @Value("${app.upload.dir:./uploads}")
+    private String uploadDir;
+
+    @Value("${app.upload.resumable.max-file-size:5GB}")
+    private DataSize maxFileSize;
+
+    @Value("${app.upload.resumable.part-size:8MB}")
+    private DataSize partSize;
+
+    @Value("${app.upload.resumable.session-ttl:24h}")
+    private Duration sessionTtl;
+
+    private record Session(UUID uploadId, String filename, String contentType, String namespace,
+                           long fileSize, long partSize, int partCount) {
+
+        long offset(int partNumber) {
+            return (partNumber - 1L) * partSize;
+        }
+
+        long length(int partNumber) {
+            return Math.min(partSize, fileSize - offset(partNumber));
+        }
+    }
+
+    public UploadStatus initiate(UploadInitRequest request) throws IOException {
+        documentService.validateUpload(request.getFilename(), request.getContentType(), request.getFileSize(),
+                maxFileSize.toBytes());
+        String namespace = documentService.resolveNamespace(request.getNamespace());
+
+        long partBytes = partSize.toBytes();
+        int partCount = (int) ((request.getFileSize() + partBytes - 1) / partBytes);
+        Session session = new Session(UUID.randomUUID(), request.getFilename(), request.getContentType(), namespace,
+                request.getFileSize(), partBytes, partCount);
+
+        // Sparse preallocation: parts can land at their offsets in any order
+        Path file = partialPath(session.uploadId());
+        Files.createDirectories(file.getParent());
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.setLength(session.fileSize());
+        }
+
+        String sessionKey = SESSION_KEY + session.uploadId();
+        String partsKey = PARTS_KEY + session.uploadId();
+        stringRedisTemplate.opsForHash().putAll(sessionKey, Map.of(
+                "filename", session.filename(),
+                "contentType", session.contentType(),
+                "namespace", session.namespace(),
+                "fileSize", String.valueOf(session.fileSize()),
+                "partSize", String.valueOf(session.partSize()),
+                "partCount", String.valueOf(session.partCount())
+        ));
+        stringRedisTemplate.expire(sessionKey, sessionTtl);
+        // Size the bitmap up front so it carries the session TTL; SETBIT later keeps the expiry
+        stringRedisTemplate.opsForValue().setBit(partsKey, partCount - 1L, false);
+        stringRedisTemplate.expire(partsKey, sessionTtl);
+
+        log.info("Resumable upload {} initiated: {} ({} bytes, {} parts)", session.uploadId(), session.filename(),
+                session.fileSize(), partCount);
+        return toStatus(session, new byte[0]);
+    }
+
+    /**
+     * Write one part at its offset. The body must be exactly the part's length; re-sending a part overwrites it.
+     */
+    public UploadStatus writePart(UUID uploadId, int partNumber, InputStream body) throws IOException {
+        Session session = loadSession(uploadId);
+        if (partNumber < 1 || partNumber > session.partCount()) {
+            throw new FileValidationException(ResponseCodes.FileError.INVALID_PART, messageService.getMessage(
+                    ResponseCodes.FileError.INVALID_PART, new Object[]{partNumber, session.partCount()}));
+        }
+
+        long offset = session.offset(partNumber);
+        long length = session.length(partNumber);
+        long written = 0;
+        // The servlet stream is owned by the container, so only the file channel is closed here
+        ReadableByteChannel source = Channels.newChannel(body);
+        try (FileChannel target = FileChannel.open(partialPath(uploadId), StandardOpenOption.WRITE)) {
+            long transferred;
+            while (written < length
+                    && (transferred = target.transferFrom(source, offset + written, length - written)) > 0) {
+                written += transferred;
+            }
+        } catch (NoSuchFileException e) {
+            throw new UploadSessionNotFoundException(uploadId.toString());
+        }
+
+        // A short part leaves a hole and a long one would spill into the next part; neither is marked received
+        if (written < length || body.read() != -1) {
+            throw new FileValidationException(ResponseCodes.FileError.PART_SIZE_MISMATCH, messageService.getMessage(
+                    ResponseCodes.FileError.PART_SIZE_MISMATCH, new Object[]{partNumber, length}));
+        }
+
+        stringRedisTemplate.opsForValue().setBit(PARTS_KEY + uploadId, partNumber - 1L, true);
+        return toStatus(session, readPartsBitmap(uploadId));
+    }
+
+    public UploadStatus getStatus(UUID uploadId) {
+        return toStatus(loadSession(uploadId), readPartsBitmap(uploadId));
+    }
+
+    /**
+     * Verify every part arrived, move the file into the upload directory and start ingestion
+     */
+    public Document complete(UUID uploadId) throws IOException {
+        Session session = loadSession(uploadId);
+        byte[] key = (PARTS_KEY + uploadId).getBytes(StandardCharsets.UTF_8);
+        Long received = stringRedisTemplate.execute((RedisCallback<Long>) connection ->
+                connection.stringCommands().bitCount(key));
+        long receivedParts = received != null ? received : 0;
+        if (receivedParts < session.partCount()) {
+            throw new FileValidationException(ResponseCodes.FileError.UPLOAD_INCOMPLETE, messageService.getMessage(
+                    ResponseCodes.FileError.UPLOAD_INCOMPLETE, new Object[]{receivedParts, session.partCount()}));
+        }
+
+        // The atomic move doubles as the completion claim: a concurrent complete finds no partial file
+        Path target = documentService.newStoragePath(session.filename());
+        try {
+            Files.move(partialPath(uploadId), target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (NoSuchFileException e) {
+            throw new UploadSessionNotFoundException(uploadId.toString());
+        }
+        deleteSession(uploadId);
+
+        return documentService.registerStoredFile(target, session.filename(), session.contentType(),
+                session.fileSize(), checksum(target), session.namespace());
+    }
+
+    public void abort(UUID uploadId) throws IOException {
+        loadSession(uploadId);
+        deleteSession(uploadId);
+        Files.deleteIfExists(partialPath(uploadId));
+        log.info("Resumable upload {} aborted", uploadId);
+    }
+
+    /**
+     * Remove partial files whose session expired without being completed or aborted
+     */
+    @Scheduled(fixedDelayString = "${app.upload.resumable.cleanup-interval:1h}")
+    public void removeExpiredUploads() {
+        Path partialDir = Paths.get(uploadDir, PARTIAL_DIR);
+        if (!Files.isDirectory(partialDir)) {
+            return;
+        }
+        Instant cutoff = Instant.now().minus(ORPHAN_GRACE);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(partialDir)) {
+            for (Path file : files) {
+                String uploadId = file.getFileName().toString();
+                if (Boolean.TRUE.equals(stringRedisTemplate.hasKey(SESSION_KEY + uploadId))
+                        || Files.getLastModifiedTime(file).toInstant().isAfter(cutoff)) {
+                    continue;
+                }
+                Files.deleteIfExists(file);
+                log.info("Removed expired partial upload {}", uploadId);
+            }
+        } catch (IOException e) {
+            log.warn("Failed to clean up expired partial uploads", e);
+        }
+    }
+
+    private Session loadSession(UUID uploadId) {
+        Map<Object, Object> fields = stringRedisTemplate.opsForHash().entries(SESSION_KEY + uploadId);
+        if (fields.isEmpty()) {
+            throw new UploadSessionNotFoundException(uploadId.toString());
+        }
+        return new Session(uploadId,
+                (String) fields.get("filename"),
+                (String) fields.get("contentType"),
+                (String) fields.get("namespace"),
+                Long.parseLong((String) fields.get("fileSize")),
+                Long.parseLong((String) fields.get("partSize")),
+                Integer.parseInt((String) fields.get("partCount")));
+    }
+
+    private byte[] readPartsBitmap(UUID uploadId) {
+        byte[] key = (PARTS_KEY + uploadId).getBytes(StandardCharsets.UTF_8);
+        byte[] bitmap = stringRedisTemplate.execute((RedisCallback<byte[]>) connection ->
+                connection.stringCommands().get(key));
+        return bitmap != null ? bitmap : new byte[0];
+    }
+
+    private UploadStatus toStatus(Session session, byte[] bitmap) {
+        List<Integer> receivedParts = new ArrayList<>();
+        List<Integer> missingParts = new ArrayList<>();
+        for (int i = 0; i < session.partCount(); i++) {
+            // Redis bitmaps number bits from the most significant bit of the first byte
+            boolean received = i / 8 < bitmap.length && (bitmap[i / 8] & (0x80 >>> (i % 8))) != 0;
+            (received ? receivedParts : missingParts).add(i + 1);
+        }
+        return UploadStatus.builder()
+                .uploadId(session.uploadId().toString())
+                .filename(session.filename())
+                .fileSize(session.fileSize())
+                .partSize(session.partSize())
+                .partCount(session.partCount())
+                .receivedParts(receivedParts)
+                .missingParts(missingParts)
+                .build();
+    }
+
+    private void deleteSession(UUID uploadId) {
+        stringRedisTemplate.delete(List.of(SESSION_KEY + uploadId, PARTS_KEY + uploadId));
+    }
+
+    private Path partialPath(UUID uploadId) {
+        return Paths.get(uploadDir, PARTIAL_DIR, uploadId.toString());
+    }
+
+    private static String checksum(Path file) throws IOException {
+        MessageDigest digest = DocumentService.newSha256();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(CHECKSUM_BUFFER_SIZE);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+}
@@ -0,0 +1,124 @@
+package io.github.avew.oya.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.github.avew.oya.dto.DocumentSearchResult;
+import io.github.avew.oya.dto.SearchFilter;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Two-level cache of retrieval results: a small local near-cache in front of Redis.
+ * Keys include the corpus generation, so results are dropped implicitly when the corpus changes.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SearchResultCache {
+
+    private static final String REDIS_KEY_PREFIX = "search_cache:";
+    private static final TypeReference<List<DocumentSearchResult>> RESULT_TYPE = new TypeReference<>() {};
+
+    private final CorpusVersionService corpusVersionService;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final ObjectMapper objectMapper;
+
+    @Value("${app.search.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.search.cache.ttl:10m}")
+    private Duration ttl;
+
+    @Value("${app.search.cache.local-max-size:1000}")
+    private long localMaxSize;
+
+    @Value("${app.search.cache.local-ttl:60s}")
+    private Duration localTtl;
+
+    private Cache<String, List<DocumentSearchResult>> nearCache;
+
+    @PostConstruct
+    void init() {
+        nearCache = Caffeine.newBuilder()
+                .maximumSize(localMaxSize)
+                .expireAfterWrite(localTtl)
+                .build();
+    }
+
+    /**
+     * Build the cache key for a query, or null when caching is disabled or the corpus generation is unknown
+     */
+    public String key(String query, int limit, String mode, SearchFilter filter) {
+        if (!enabled) {
+            return null;
+        }
+        long generation = corpusVersionService.currentGeneration();
+        if (generation == CorpusVersionService.UNKNOWN_GENERATION) {
+            return null;
+        }
+        String raw = mode + "|" + limit + "|" + filter.getNamespace() + "|" + filter.getContentType() + "|"
+                + filter.documentIdsAsArray() + "|" + query;
+        return REDIS_KEY_PREFIX + generation + ":" + sha256(raw);
+    }
+
+    public Optional<List<DocumentSearchResult>> get(String key) {
+        if (key == null) {
+            return Optional.empty();
+        }
+
+        List<DocumentSearchResult> local = nearCache.getIfPresent(key);
+        if (local != null) {
+            log.debug("Search cache near hit: {}", key);
+            return Optional.of(local);
+        }
+
+        try {
+            String json = stringRedisTemplate.opsForValue().get(key);
+            if (json != null) {
+                List<DocumentSearchResult> results = objectMapper.readValue(json, RESULT_TYPE);
+                nearCache.put(key, results);
+                log.debug("Search cache hit: {}", key);
+                return Optional.of(results);
+            }
+        } catch (Exception e) {
+            log.warn("Error reading search cache entry: {}", key, e);
+        }
+        return Optional.empty();
+    }
+
+    public void put(String key, List<DocumentSearchResult> results) {
+        if (key == null) {
+            return;
+        }
+
+        nearCache.put(key, results);
+        try {
+            stringRedisTemplate.opsForValue().set(key, objectMapper.writeValueAsString(results), ttl);
+        } catch (Exception e) {
+            log.warn("Error writing search cache entry: {}", key, e);
+        }
+    }
+
+    private static String sha256(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
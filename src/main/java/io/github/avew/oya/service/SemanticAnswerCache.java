@@ -0,0 +1,228 @@
+package io.github.avew.oya.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.github.avew.oya.dto.SearchFilter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory cache of answers keyed by question embedding. A new question whose embedding is within
+ * the similarity threshold of a cached one, in the same scope and against the same corpus generation,
+ * is answered from cache instead of a completion call.
+ * <p>
+ * Lookup uses random-hyperplane LSH: entries are bucketed by an N-bit sign signature and a lookup
+ * probes its own bucket plus all buckets one bit away, then compares exact cosine similarity.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SemanticAnswerCache {
+
+    private static final long LSH_SEED = 0x5EED_CAFEL;
+    // Scope token for unrestricted searches; not a valid namespace name, so it can't collide with one
+    static final String ALL_NAMESPACES = "*";
+
+    private final CorpusVersionService corpusVersionService;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.semantic-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.semantic-cache.similarity-threshold:0.95}")
+    private double similarityThreshold;
+
+    @Value("${app.semantic-cache.max-entries:10000}")
+    private long maxEntries;
+
+    @Value("${app.semantic-cache.ttl:6h}")
+    private Duration ttl;
+
+    @Value("${app.semantic-cache.lsh-bits:12}")
+    private int lshBits;
+
+    private Cache<UUID, CachedAnswer> entries;
+    // scope -> LSH signature -> entries in that bucket
+    private final Map<String, Map<Integer, Set<CachedAnswer>>> buckets = new ConcurrentHashMap<>();
+    private volatile float[][] hyperplanes;
+
+    private Counter hits;
+    private Counter misses;
+
+    public record CachedAnswer(UUID id, String scope, int signature, float[] embedding, String answer,
+                               List<UUID> citedChunkIds, long corpusGeneration) {
+    }
+
+    @PostConstruct
+    void init() {
+        entries = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(ttl)
+                .removalListener((UUID id, CachedAnswer entry, RemovalCause cause) -> {
+                    if (entry != null) {
+                        unindex(entry);
+                    }
+                })
+                .build();
+
+        hits = Counter.builder("oya.semantic_cache.lookups").tag("result", "hit")
+                .description("Semantic answer cache lookups").register(meterRegistry);
+        misses = Counter.builder("oya.semantic_cache.lookups").tag("result", "miss")
+                .description("Semantic answer cache lookups").register(meterRegistry);
+        Gauge.builder("oya.semantic_cache.size", entries, Cache::estimatedSize)
+                .description("Cached answers").register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Cache scope (tenant isolation): answers are only reused for the same namespace and retrieval filters.
+     * A null namespace searches every namespace, so it gets its own scope rather than the default one.
+     */
+    public String scope(SearchFilter filter) {
+        String namespace = filter.getNamespace() != null ? filter.getNamespace() : ALL_NAMESPACES;
+        return namespace + "|" + filter.getContentType() + "|" + filter.documentIdsAsArray();
+    }
+
+    public Optional<CachedAnswer> lookup(String scope, float[] questionEmbedding, long corpusGeneration) {
+        if (!enabled || questionEmbedding == null || corpusGeneration == CorpusVersionService.UNKNOWN_GENERATION) {
+            return Optional.empty();
+        }
+
+        float[] normalized = normalize(questionEmbedding);
+        Map<Integer, Set<CachedAnswer>> scopeBuckets = buckets.get(scope);
+        CachedAnswer best = null;
+        double bestSimilarity = similarityThreshold;
+
+        if (scopeBuckets != null) {
+            int signature = signature(normalized);
+            for (int probe = -1; probe < lshBits; probe++) {
+                int bucket = probe < 0 ? signature : signature ^ (1 << probe);
+                Set<CachedAnswer> candidates = scopeBuckets.get(bucket);
+                if (candidates == null) {
+                    continue;
+                }
+                for (CachedAnswer candidate : candidates) {
+                    if (candidate.corpusGeneration() != corpusGeneration) {
+                        // Answer was built on an older corpus; drop it
+                        entries.invalidate(candidate.id());
+                        continue;
+                    }
+                    double similarity = dot(normalized, candidate.embedding());
+                    if (similarity >= bestSimilarity) {
+                        bestSimilarity = similarity;
+                        best = candidate;
+                    }
+                }
+            }
+        }
+
+        if (best == null || entries.getIfPresent(best.id()) == null) {
+            misses.increment();
+            return Optional.empty();
+        }
+
+        hits.increment();
+        log.debug("Semantic cache hit in scope {} with similarity {}", scope, bestSimilarity);
+        return Optional.of(best);
+    }
+
+    public void put(String scope, float[] questionEmbedding, String answer, List<UUID> citedChunkIds, long corpusGeneration) {
+        if (!enabled || questionEmbedding == null || corpusGeneration == CorpusVersionService.UNKNOWN_GENERATION) {
+            return;
+        }
+
+        float[] normalized = normalize(questionEmbedding);
+        CachedAnswer entry = new CachedAnswer(UUID.randomUUID(), scope, signature(normalized), normalized,
+                answer, List.copyOf(citedChunkIds), corpusGeneration);
+
+        buckets.computeIfAbsent(scope, key -> new ConcurrentHashMap<>())
+                .computeIfAbsent(entry.signature(), key -> ConcurrentHashMap.newKeySet())
+                .add(entry);
+        entries.put(entry.id(), entry);
+    }
+
+    private void unindex(CachedAnswer entry) {
+        Map<Integer, Set<CachedAnswer>> scopeBuckets = buckets.get(entry.scope());
+        if (scopeBuckets == null) {
+            return;
+        }
+        Set<CachedAnswer> bucket = scopeBuckets.get(entry.signature());
+        if (bucket != null) {
+            bucket.remove(entry);
+        }
+    }
+
+    private int signature(float[] vector) {
+        float[][] planes = hyperplanes(vector.length);
+        int signature = 0;
+        for (int bit = 0; bit < planes.length; bit++) {
+            if (dot(vector, planes[bit]) >= 0) {
+                signature |= 1 << bit;
+            }
+        }
+        return signature;
+    }
+
+    private float[][] hyperplanes(int dimensions) {
+        float[][] planes = hyperplanes;
+        if (planes == null || planes[0].length != dimensions) {
+            synchronized (this) {
+                planes = hyperplanes;
+                if (planes == null || planes[0].length != dimensions) {
+                    // Fixed seed so signatures are stable for the lifetime of the cache
+                    Random random = new Random(LSH_SEED);
+                    planes = new float[lshBits][dimensions];
+                    for (float[] plane : planes) {
+                        for (int i = 0; i < dimensions; i++) {
+                            plane[i] = (float) random.nextGaussian();
+                        }
+                    }
+                    hyperplanes = planes;
+                }
+            }
+        }
+        return planes;
+    }
+
+    private static float[] normalize(float[] vector) {
+        double norm = Math.sqrt(dot(vector, vector));
+        float[] normalized = new float[vector.length];
+        if (norm == 0.0) {
+            return normalized;
+        }
+        for (int i = 0; i < vector.length; i++) {
+            normalized[i] = (float) (vector[i] / norm);
+        }
+        return normalized;
+    }
+
+    private static double dot(float[] a, float[] b) {
+        if (a.length != b.length) {
+            return 0.0;
+        }
+        double sum = 0.0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+}
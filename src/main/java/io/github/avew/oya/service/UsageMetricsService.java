@@ -0,0 +1,59 @@
+package io.github.avew.oya.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token usage and stage latency metrics, tagged by endpoint (chat, chat_stream, ingest, query, ...) and model
+ */
+@Service
+@RequiredArgsConstructor
+public class UsageMetricsService {
+
+    public static final String TOKENS_PROMPT = "prompt";
+    public static final String TOKENS_COMPLETION = "completion";
+    public static final String TOKENS_EMBEDDING = "embedding";
+
+    private final MeterRegistry meterRegistry;
+
+    public void recordTokens(String endpoint, String model, String type, long tokens) {
+        if (tokens <= 0) {
+            return;
+        }
+        Counter.builder("oya.openai.tokens")
+                .description("OpenAI tokens consumed")
+                .tag("endpoint", endpoint)
+                .tag("model", model)
+                .tag("type", type)
+                .register(meterRegistry)
+                .increment(tokens);
+    }
+
+    /**
+     * Per-request prompt size, to spot prompts that blow up
+     */
+    public void recordPromptSize(String endpoint, String model, long promptTokens) {
+        DistributionSummary.builder("oya.chat.prompt.tokens")
+                .description("Prompt tokens per completion call")
+                .tag("endpoint", endpoint)
+                .tag("model", model)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry)
+                .record(promptTokens);
+    }
+
+    public void recordStage(String endpoint, String stage, long nanos) {
+        Timer.builder("oya.request.stage")
+                .description("Time spent per request stage")
+                .tag("endpoint", endpoint)
+                .tag("stage", stage)
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+}
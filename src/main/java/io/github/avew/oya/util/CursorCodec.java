@@ -0,0 +1,66 @@
+package io.github.avew.oya.util;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Encodes keyset pagination positions as opaque URL-safe cursor strings
+ */
+public final class CursorCodec {
+
+    private static final String SEPARATOR = "|";
+
+    private CursorCodec() {
+        // Private constructor to prevent instantiation
+    }
+
+    public static String encode(Object... parts) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < parts.length; i++) {
+            if (i > 0) {
+                sb.append(SEPARATOR);
+            }
+            sb.append(parts[i]);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decode a cursor into its parts; returns null for a null/blank cursor (first page)
+     *
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    public static String[] decode(String cursor, int expectedParts) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        String[] parts = decoded.split("\\|", -1);
+        if (parts.length != expectedParts) {
+            throw new IllegalArgumentException("Malformed cursor");
+        }
+        return parts;
+    }
+
+    /**
+     * Decode a newest-first (created_at, id) keyset cursor; returns null for a null/blank cursor (first page)
+     *
+     * @throws IllegalArgumentException if the cursor is malformed or its parts are not a timestamp and a UUID
+     */
+    public static String[] decodeCreatedAtId(String cursor) {
+        // Cursor structure: [0]=created_at, [1]=id
+        String[] position = decode(cursor, 2);
+        if (position != null) {
+            try {
+                LocalDateTime.parse(position[0]);
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException("Malformed cursor", e);
+            }
+            UUID.fromString(position[1]);
+        }
+        return position;
+    }
+}
@@ -0,0 +1,25 @@
+package io.github.avew.oya.util;
+
+/**
+ * Cheap token count approximation used for chunking and prompt budgeting
+ */
+public final class TokenEstimator {
+
+    private static final int CHARS_PER_TOKEN = 4;
+
+    private TokenEstimator() {
+        // Private constructor to prevent instantiation
+    }
+
+    public static int estimate(String text) {
+        // Simple approximation: ~4 characters per token
+        return text == null ? 0 : text.length() / CHARS_PER_TOKEN;
+    }
+
+    /**
+     * Approximate number of characters that fit in the given number of tokens
+     */
+    public static int charsFor(int tokens) {
+        return tokens * CHARS_PER_TOKEN;
+    }
+}
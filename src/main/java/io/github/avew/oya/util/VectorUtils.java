@@ -0,0 +1,79 @@
+package io.github.avew.oya.util;
+
+import java.util.List;
+
+/**
+ * Helpers for converting embeddings between OpenAI, pgvector text format and float arrays
+ */
+public final class VectorUtils {
+
+    private VectorUtils() {
+        // Private constructor to prevent instantiation
+    }
+
+    /**
+     * Format an embedding as a pgvector literal: [1.0,2.0,3.0,...]
+     */
+    public static String toPgVector(List<Double> embedding) {
+        StringBuilder sb = new StringBuilder(embedding.size() * 12);
+        sb.append("[");
+        for (int i = 0; i < embedding.size(); i++) {
+            sb.append(embedding.get(i));
+            if (i < embedding.size() - 1) {
+                sb.append(",");
+            }
+        }
+        sb.append("]");
+        return sb.toString();
+    }
+
+    /**
+     * Parse a pgvector literal ([1.0,2.0,...]) into a float array, or null if the value is empty
+     */
+    public static float[] parse(String vector) {
+        if (vector == null || vector.length() < 2) {
+            return null;
+        }
+        String body = vector.substring(1, vector.length() - 1).trim();
+        if (body.isEmpty()) {
+            return null;
+        }
+
+        int dimensions = 1;
+        for (int i = 0; i < body.length(); i++) {
+            if (body.charAt(i) == ',') {
+                dimensions++;
+            }
+        }
+
+        float[] values = new float[dimensions];
+        int start = 0;
+        for (int i = 0; i < dimensions; i++) {
+            int end = body.indexOf(',', start);
+            if (end < 0) {
+                end = body.length();
+            }
+            values[i] = Float.parseFloat(body.substring(start, end).trim());
+            start = end + 1;
+        }
+        return values;
+    }
+
+    public static double cosineSimilarity(float[] a, float[] b) {
+        if (a == null || b == null || a.length != b.length) {
+            return 0.0;
+        }
+        double dot = 0.0;
+        double normA = 0.0;
+        double normB = 0.0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+            normA += a[i] * a[i];
+            normB += b[i] * b[i];
+        }
+        if (normA == 0.0 || normB == 0.0) {
+            return 0.0;
+        }
+        return dot / (Math.sqrt(normA) * Math.sqrt(normB));
+    }
+}
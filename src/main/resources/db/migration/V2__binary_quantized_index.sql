@@ -0,0 +1,5 @@
+-- V2__binary_quantized_index.sql
+-- Coarse first stage for two-stage retrieval: HNSW index over binary-quantized embeddings.
+-- 1536 bits per row instead of 1536 floats, compared with Hamming distance; requires pgvector >= 0.7.0.
+CREATE INDEX idx_document_chunk_embedding_bq_hamming ON document_chunk
+    USING hnsw ((binary_quantize(embedding)::bit(1536)) bit_hamming_ops);
@@ -0,0 +1,11 @@
+-- V3__document_namespace.sql
+-- Namespace (collection / tenant) for filtered retrieval. The chunk table carries a copy of the
+-- document namespace so filtered vector search does not depend on the join.
+ALTER TABLE document ADD COLUMN namespace VARCHAR(100) NOT NULL DEFAULT 'default';
+ALTER TABLE document_chunk ADD COLUMN namespace VARCHAR(100) NOT NULL DEFAULT 'default';
+
+CREATE INDEX idx_document_namespace_status ON document (namespace, status);
+CREATE INDEX idx_document_content_type ON document (content_type);
+CREATE INDEX idx_document_chunk_namespace ON document_chunk (namespace);
+
+-- Large namespaces additionally get a partial HNSW index at runtime (see NamespaceIndexService)
@@ -0,0 +1,5 @@
+-- V4__chunk_content_trigram_index.sql
+-- Trigram index so keyword search (content ILIKE '%keyword%') does not scan every chunk
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE INDEX idx_document_chunk_content_trgm ON document_chunk USING GIN (content gin_trgm_ops);
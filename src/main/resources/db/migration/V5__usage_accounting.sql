@@ -0,0 +1,11 @@
+-- V5__usage_accounting.sql
+-- Token usage and latency per chat turn and per ingested document
+ALTER TABLE chat_history
+    ADD COLUMN prompt_tokens INTEGER,
+    ADD COLUMN completion_tokens INTEGER,
+    ADD COLUMN embedding_tokens INTEGER,
+    ADD COLUMN latency_ms BIGINT;
+
+ALTER TABLE document
+    ADD COLUMN embedding_tokens BIGINT,
+    ADD COLUMN processing_ms BIGINT;
@@ -0,0 +1,45 @@
+-- V6__partition_chat_history.sql
+-- Monthly range partitions on created_at, so history reads prune to recent months and old months are dropped
+-- instead of deleted row by row. The primary key has to include the partition key.
+ALTER TABLE chat_history RENAME TO chat_history_legacy;
+
+CREATE TABLE chat_history (
+    id UUID NOT NULL DEFAULT uuid_generate_v4(),
+    user_id VARCHAR(255) NOT NULL,
+    message TEXT NOT NULL,
+    response TEXT,
+    prompt_tokens INTEGER,
+    completion_tokens INTEGER,
+    embedding_tokens INTEGER,
+    latency_ms BIGINT,
+    created_at TIMESTAMP WITHOUT TIME ZONE NOT NULL DEFAULT NOW(),
+    PRIMARY KEY (id, created_at)
+) PARTITION BY RANGE (created_at);
+
+-- Catches rows outside the pre-created months; the partition maintenance job keeps it empty
+CREATE TABLE chat_history_default PARTITION OF chat_history DEFAULT;
+
+-- One partition per month from the oldest existing row through next month
+DO $$
+DECLARE
+    month_start DATE := date_trunc('month', COALESCE((SELECT MIN(created_at) FROM chat_history_legacy), NOW()))::date;
+    last_month DATE := (date_trunc('month', NOW()) + INTERVAL '1 month')::date;
+BEGIN
+    WHILE month_start <= last_month LOOP
+        EXECUTE format('CREATE TABLE IF NOT EXISTS %I PARTITION OF chat_history FOR VALUES FROM (%L) TO (%L)',
+                       'chat_history_p' || to_char(month_start, 'YYYYMM'),
+                       month_start, (month_start + INTERVAL '1 month')::date);
+        month_start := (month_start + INTERVAL '1 month')::date;
+    END LOOP;
+END $$;
+
+INSERT INTO chat_history (id, user_id, message, response, prompt_tokens, completion_tokens, embedding_tokens,
+                          latency_ms, created_at)
+SELECT id, user_id, message, response, prompt_tokens, completion_tokens, embedding_tokens, latency_ms,
+       COALESCE(created_at, NOW())
+FROM chat_history_legacy;
+
+DROP TABLE chat_history_legacy;
+
+-- Keyset pagination of a user's history: WHERE user_id = ? AND (created_at, id) < (?, ?) ORDER BY created_at DESC, id DESC
+CREATE INDEX idx_chat_history_user_created ON chat_history (user_id, created_at DESC, id DESC);
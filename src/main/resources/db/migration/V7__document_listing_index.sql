@@ -0,0 +1,6 @@
+-- V7__document_listing_index.sql
+-- Keyset pagination of the document listing, newest first, optionally filtered by status
+CREATE INDEX idx_document_created_id ON document (created_at DESC, id DESC);
+CREATE INDEX idx_document_status_created_id ON document (status, created_at DESC, id DESC);
+
+DROP INDEX IF EXISTS idx_document_created_at;
@@ -0,0 +1,4 @@
+-- V8__document_checksum.sql
+-- SHA-256 of the stored upload, computed while the file is written to disk
+ALTER TABLE document
+    ADD COLUMN checksum VARCHAR(64);
@@ -0,0 +1,12 @@
+-- V9__document_versions.sql
+-- Document versions: a new version points at the one it replaces, which becomes SUPERSEDED once the
+-- new version is searchable. Chunk content hashes let unchanged chunks reuse their embeddings.
+ALTER TABLE document
+    ADD COLUMN version INTEGER NOT NULL DEFAULT 1,
+    ADD COLUMN parent_document_id UUID REFERENCES document (id) ON DELETE SET NULL;
+
+-- Each version has at most one successor, so concurrent revisions of the same version cannot both go live
+CREATE UNIQUE INDEX idx_document_parent ON document (parent_document_id);
+
+ALTER TABLE document_chunk
+    ADD COLUMN content_hash VARCHAR(64);
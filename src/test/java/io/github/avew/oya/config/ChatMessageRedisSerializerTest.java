@@ -0,0 +1,62 @@
+package io.github.avew.oya.config;
+
+import com.theokanning.openai.completion.chat.ChatMessage;
+import com.theokanning.openai.completion.chat.ChatMessageRole;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ChatMessageRedisSerializerTest {
+
+    private final ChatMessageRedisSerializer serializer = new ChatMessageRedisSerializer();
+
+    @Test
+    void roundTripsEveryRole() {
+        for (ChatMessageRole role : new ChatMessageRole[]{ChatMessageRole.SYSTEM, ChatMessageRole.USER,
+                ChatMessageRole.ASSISTANT}) {
+            ChatMessage decoded = serializer.deserialize(serializer.serialize(new ChatMessage(role.value(), "halo")));
+
+            assertThat(decoded.getRole()).isEqualTo(role.value());
+            assertThat(decoded.getContent()).isEqualTo("halo");
+        }
+    }
+
+    @Test
+    void encodesFormatAndRoleBytesBeforeUtf8Content() {
+        byte[] bytes = serializer.serialize(new ChatMessage(ChatMessageRole.ASSISTANT.value(), "é"));
+
+        assertThat(bytes).containsExactly(1, 2, (byte) 0xC3, (byte) 0xA9);
+    }
+
+    @Test
+    void roundTripsEmptyAndMultibyteContent() {
+        ChatMessage empty = serializer.deserialize(serializer.serialize(new ChatMessage(ChatMessageRole.USER.value(), null)));
+        ChatMessage unicode = serializer.deserialize(
+                serializer.serialize(new ChatMessage(ChatMessageRole.USER.value(), "Terima kasih 🙏 — ß")));
+
+        assertThat(empty.getContent()).isEmpty();
+        assertThat(unicode.getContent()).isEqualTo("Terima kasih 🙏 — ß");
+    }
+
+    @Test
+    void legacyOrTruncatedEntriesDecodeToNull() {
+        byte[] legacyJson = "{\"role\":\"user\",\"content\":\"hi\"}".getBytes(StandardCharsets.UTF_8);
+
+        assertThat(serializer.deserialize(legacyJson)).isNull();
+        assertThat(serializer.deserialize(new byte[]{1})).isNull();
+        assertThat(serializer.deserialize(new byte[0])).isNull();
+        assertThat(serializer.deserialize(null)).isNull();
+    }
+
+    @Test
+    void rejectsUnknownRoles() {
+        assertThatThrownBy(() -> serializer.serialize(new ChatMessage("function", "x")))
+                .isInstanceOf(SerializationException.class);
+        assertThatThrownBy(() -> serializer.deserialize(new byte[]{1, 9, 'x'}))
+                .isInstanceOf(SerializationException.class);
+    }
+}
@@ -0,0 +1,156 @@
+package io.github.avew.oya.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Read/write routing against two real Postgres servers. The "replica" is a standalone server whose
+ * recovery and replay functions are shadowed on its search_path, so its reported replay lag can be set
+ * from the test without running streaming replication.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class ReplicaRoutingDataSourceTest {
+
+    private static final String POSTGRES_IMAGE = "postgres:16-alpine";
+    private static final String REPLICA_KEY = "replica-0";
+
+    @Container
+    private static final PostgreSQLContainer<?> PRIMARY = new PostgreSQLContainer<>(POSTGRES_IMAGE)
+            .withDatabaseName("oya_primary");
+
+    @Container
+    private static final PostgreSQLContainer<?> REPLICA = new PostgreSQLContainer<>(POSTGRES_IMAGE)
+            .withDatabaseName("oya_replica");
+
+    private HikariDataSource primaryPool;
+    private HikariDataSource replicaPool;
+    private ReplicaRoutingDataSource routingDataSource;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate readOnlyTransaction;
+    private TransactionTemplate writeTransaction;
+
+    @BeforeAll
+    static void stubReplicationFunctions() {
+        JdbcTemplate replica = new JdbcTemplate(directDataSource(REPLICA));
+        replica.execute("CREATE SCHEMA replication_stub");
+        replica.execute("CREATE TABLE replication_stub.replay_lag (seconds integer NOT NULL)");
+        replica.execute("INSERT INTO replication_stub.replay_lag VALUES (0)");
+        replica.execute("CREATE FUNCTION replication_stub.pg_is_in_recovery() RETURNS boolean "
+                + "LANGUAGE sql AS 'SELECT true'");
+        replica.execute("CREATE FUNCTION replication_stub.pg_last_wal_receive_lsn() RETURNS pg_lsn "
+                + "LANGUAGE sql AS 'SELECT ''0/2''::pg_lsn'");
+        replica.execute("CREATE FUNCTION replication_stub.pg_last_wal_replay_lsn() RETURNS pg_lsn "
+                + "LANGUAGE sql AS 'SELECT ''0/1''::pg_lsn'");
+        replica.execute("CREATE FUNCTION replication_stub.pg_last_xact_replay_timestamp() RETURNS timestamptz "
+                + "LANGUAGE sql AS 'SELECT now() - make_interval(secs => seconds) FROM replication_stub.replay_lag'");
+        // pg_catalog listed explicitly after the stubs, so the stubs win for new sessions
+        replica.execute("ALTER DATABASE oya_replica SET search_path = replication_stub, pg_catalog, public");
+    }
+
+    @BeforeEach
+    void setUp() {
+        setReplicaLag(0);
+        primaryPool = pool(PRIMARY);
+        replicaPool = pool(REPLICA);
+        routingDataSource = new ReplicaRoutingDataSource(primaryPool, Map.of(REPLICA_KEY, replicaPool),
+                Duration.ofSeconds(10));
+        routingDataSource.afterPropertiesSet();
+        routingDataSource.checkReplicaLag();
+
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(routingDataSource);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+        writeTransaction = new TransactionTemplate(transactionManager);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        routingDataSource.close();
+        primaryPool.close();
+    }
+
+    @Test
+    void readOnlyTransactionGoesToReplica() {
+        assertThat(readOnlyDatabase()).isEqualTo("oya_replica");
+    }
+
+    @Test
+    void writeTransactionGoesToPrimary() {
+        String database = writeTransaction.execute(status -> {
+            jdbcTemplate.execute("CREATE TEMPORARY TABLE routing_probe (id integer) ON COMMIT DROP");
+            jdbcTemplate.update("INSERT INTO routing_probe VALUES (1)");
+            return currentDatabase();
+        });
+
+        assertThat(database).isEqualTo("oya_primary");
+        // Outside a transaction nothing is read-only either
+        assertThat(currentDatabase()).isEqualTo("oya_primary");
+    }
+
+    @Test
+    void lagAboveToleranceFallsBackToPrimary() {
+        setReplicaLag(60);
+        routingDataSource.checkReplicaLag();
+
+        assertThat(readOnlyDatabase()).isEqualTo("oya_primary");
+
+        // Back within tolerance, the replica serves reads again
+        setReplicaLag(2);
+        routingDataSource.checkReplicaLag();
+
+        assertThat(readOnlyDatabase()).isEqualTo("oya_replica");
+    }
+
+    @Test
+    void failedReplicaConnectionFallsBackToPrimary() {
+        replicaPool.close();
+
+        assertThat(readOnlyDatabase()).isEqualTo("oya_primary");
+        // The failed replica is out of rotation until a lag check succeeds again
+        assertThat(readOnlyDatabase()).isEqualTo("oya_primary");
+    }
+
+    private String readOnlyDatabase() {
+        return readOnlyTransaction.execute(status -> currentDatabase());
+    }
+
+    private String currentDatabase() {
+        return jdbcTemplate.queryForObject("SELECT current_database()", String.class);
+    }
+
+    private static void setReplicaLag(int seconds) {
+        new JdbcTemplate(directDataSource(REPLICA)).update("UPDATE replication_stub.replay_lag SET seconds = ?", seconds);
+    }
+
+    private static HikariDataSource pool(PostgreSQLContainer<?> container) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(container.getJdbcUrl());
+        dataSource.setUsername(container.getUsername());
+        dataSource.setPassword(container.getPassword());
+        dataSource.setMaximumPoolSize(2);
+        dataSource.setConnectionTimeout(2000);
+        return dataSource;
+    }
+
+    private static DriverManagerDataSource directDataSource(PostgreSQLContainer<?> container) {
+        return new DriverManagerDataSource(container.getJdbcUrl(), container.getUsername(), container.getPassword());
+    }
+}
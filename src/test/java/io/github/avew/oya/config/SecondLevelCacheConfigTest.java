@@ -0,0 +1,36 @@
+package io.github.avew.oya.config;
+
+import io.github.avew.oya.entity.Document;
+import org.junit.jupiter.api.Test;
+
+import javax.cache.CacheManager;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SecondLevelCacheConfigTest {
+
+    private final SecondLevelCacheConfig config = new SecondLevelCacheConfig();
+
+    @Test
+    void eachContextGetsItsOwnRegions() {
+        try (CacheManager first = config.hibernateCacheManager(100, Duration.ofSeconds(60));
+             CacheManager second = config.hibernateCacheManager(100, Duration.ofSeconds(60))) {
+            first.getCache(Document.CACHE_REGION).put("key", "value");
+
+            assertThat(second.getCache(Document.CACHE_REGION).containsKey("key")).isFalse();
+        }
+    }
+
+    @Test
+    void closingOneContextLeavesTheOtherOpen() {
+        CacheManager first = config.hibernateCacheManager(100, Duration.ofSeconds(60));
+        try (CacheManager second = config.hibernateCacheManager(100, Duration.ofSeconds(60))) {
+            first.close();
+
+            assertThat(first.isClosed()).isTrue();
+            assertThat(second.isClosed()).isFalse();
+            assertThat(second.getCache(Document.CACHE_REGION)).isNotNull();
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package io.github.avew.oya.service;
+
+import io.github.avew.oya.exception.ChatCapacityExceededException;
+import io.github.avew.oya.exception.ChatRateLimitedException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ChatConcurrencyGuardTest {
+
+    private final ChatConcurrencyGuard guard = new ChatConcurrencyGuard();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(guard, "perUserMaxConcurrent", 1);
+        ReflectionTestUtils.setField(guard, "perUserQueueTimeout", Duration.ofMillis(50));
+        ReflectionTestUtils.setField(guard, "maxConcurrentCompletions", 2);
+        ReflectionTestUtils.setField(guard, "completionQueueTimeout", Duration.ofMillis(50));
+        guard.init();
+    }
+
+    @Test
+    void concurrentIdenticalRequestsShareOneComputation() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            CompletableFuture<String> leader = CompletableFuture.supplyAsync(() -> guard.coalesce("key", () -> {
+                calls.incrementAndGet();
+                started.countDown();
+                await(release);
+                return "answer";
+            }), executor);
+            assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+            CompletableFuture<String> follower = CompletableFuture.supplyAsync(() -> guard.coalesce("key", () -> {
+                calls.incrementAndGet();
+                return "second computation";
+            }), executor);
+            // Give the follower time to attach to the leader's computation before it finishes
+            Thread.sleep(100);
+            release.countDown();
+
+            assertThat(leader.get(5, TimeUnit.SECONDS)).isEqualTo("answer");
+            assertThat(follower.get(5, TimeUnit.SECONDS)).isEqualTo("answer");
+        }
+        assertThat(calls).hasValue(1);
+    }
+
+    @Test
+    void failureIsPropagatedToJoinedRequests() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            CompletableFuture<String> leader = CompletableFuture.supplyAsync(() -> guard.coalesce("key", () -> {
+                started.countDown();
+                await(release);
+                throw new IllegalStateException("completion failed");
+            }), executor);
+            assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+            CompletableFuture<String> follower = CompletableFuture.supplyAsync(
+                    () -> guard.coalesce("key", () -> "second computation"), executor);
+            Thread.sleep(100);
+            release.countDown();
+
+            assertThatThrownBy(() -> leader.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(IllegalStateException.class);
+            assertThatThrownBy(() -> follower.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(IllegalStateException.class);
+        }
+    }
+
+    @Test
+    void finishedRequestsAreNotReused() {
+        assertThat(guard.coalesce("key", () -> "first")).isEqualTo("first");
+        assertThat(guard.coalesce("key", () -> "second")).isEqualTo("second");
+    }
+
+    @Test
+    void userPermitIsExclusiveUntilReleased() {
+        ChatConcurrencyGuard.Permit permit = guard.acquireUserPermit("alice");
+
+        assertThatThrownBy(() -> guard.acquireUserPermit("alice")).isInstanceOf(ChatRateLimitedException.class);
+        // Other users are not affected
+        guard.acquireUserPermit("bob").close();
+
+        permit.close();
+        guard.acquireUserPermit("alice").close();
+    }
+
+    @Test
+    void releasingTwiceReturnsOnlyOnePermit() {
+        ChatConcurrencyGuard.Permit permit = guard.acquireUserPermit("alice");
+        permit.close();
+        permit.close();
+
+        ChatConcurrencyGuard.Permit again = guard.acquireUserPermit("alice");
+        assertThatThrownBy(() -> guard.acquireUserPermit("alice")).isInstanceOf(ChatRateLimitedException.class);
+        again.close();
+    }
+
+    @Test
+    void completionBulkheadRejectsBeyondCapacity() {
+        ChatConcurrencyGuard.Permit first = guard.acquireCompletionPermit();
+        ChatConcurrencyGuard.Permit second = guard.acquireCompletionPermit();
+
+        assertThatThrownBy(guard::acquireCompletionPermit).isInstanceOf(ChatCapacityExceededException.class);
+
+        first.close();
+        guard.acquireCompletionPermit().close();
+        second.close();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
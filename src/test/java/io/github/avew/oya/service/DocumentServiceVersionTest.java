@@ -0,0 +1,131 @@
+package io.github.avew.oya.service;
+
+import io.github.avew.oya.entity.Document;
+import io.github.avew.oya.repository.DocumentChunkRepository;
+import io.github.avew.oya.repository.DocumentRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Version swap on (re)ingestion, with repositories mocked and background work run inline
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class DocumentServiceVersionTest {
+
+    @Mock
+    private DocumentRepository documentRepository;
+    @Mock
+    private DocumentChunkRepository documentChunkRepository;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+    @Mock
+    private ExecutorService virtualThreadExecutor;
+    @Mock
+    private CorpusVersionService corpusVersionService;
+    @Mock
+    private NamespaceIndexService namespaceIndexService;
+    @Mock
+    private UsageMetricsService usageMetricsService;
+    @Mock
+    private DocumentCacheSync documentCacheSync;
+
+    @InjectMocks
+    private DocumentService documentService;
+
+    @TempDir
+    private Path uploadDir;
+
+    private final UUID parentId = UUID.randomUUID();
+    private Document secondVersion;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        documentService.init();
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return null;
+        }).when(virtualThreadExecutor).execute(any());
+
+        Path file = Files.writeString(uploadDir.resolve("manual-v2.txt"), "Version two of the manual.");
+        secondVersion = Document.builder()
+                .id(UUID.randomUUID())
+                .filename("manual-v2.txt")
+                .contentType("text/plain")
+                .fileSize(Files.size(file))
+                .uploadPath(file.toString())
+                .namespace(Document.DEFAULT_NAMESPACE)
+                .version(2)
+                .parentDocumentId(parentId)
+                .status(Document.DocumentStatus.COMPLETED)
+                .build();
+
+        when(documentRepository.existsById(secondVersion.getId())).thenReturn(true);
+        when(documentRepository.findById(secondVersion.getId())).thenReturn(Optional.of(secondVersion));
+        when(documentRepository.markProcessingIfIdle(secondVersion.getId())).thenReturn(1);
+    }
+
+    @Test
+    void reprocessingSecondVersionKeepsItLive() {
+        // v1 was superseded when v2 first completed (or has since been deleted), so there is nothing to retire
+        when(documentRepository.markSuperseded(parentId)).thenReturn(0);
+        when(documentRepository.existsByIdAndStatus(parentId, Document.DocumentStatus.PROCESSING)).thenReturn(false);
+
+        documentService.reprocessDocument(secondVersion.getId());
+
+        assertThat(secondVersion.getStatus()).isEqualTo(Document.DocumentStatus.COMPLETED);
+        verify(documentRepository).markSuperseded(parentId);
+    }
+
+    @Test
+    void failsWhenPreviousVersionIsBeingReprocessed() {
+        when(documentRepository.markSuperseded(parentId)).thenReturn(0);
+        when(documentRepository.existsByIdAndStatus(parentId, Document.DocumentStatus.PROCESSING)).thenReturn(true);
+
+        documentService.reprocessDocument(secondVersion.getId());
+
+        assertThat(secondVersion.getStatus()).isEqualTo(Document.DocumentStatus.FAILED);
+    }
+
+    @Test
+    void firstCompletionSupersedesPreviousVersion() {
+        when(documentRepository.markSuperseded(parentId)).thenReturn(1);
+
+        documentService.reprocessDocument(secondVersion.getId());
+
+        assertThat(secondVersion.getStatus()).isEqualTo(Document.DocumentStatus.COMPLETED);
+        verify(documentCacheSync).documentChanged(parentId);
+    }
+
+    @Test
+    void deletingVersionRestoresParentEvenWhenLoadedStatusIsStale() {
+        // Cached entry still says PROCESSING although the version has since completed
+        secondVersion.setStatus(Document.DocumentStatus.PROCESSING);
+        when(documentRepository.deleteIfNotProcessing(secondVersion.getId())).thenReturn(1);
+
+        documentService.deleteDocument(secondVersion.getId());
+
+        verify(documentRepository).restoreSuperseded(parentId);
+    }
+}
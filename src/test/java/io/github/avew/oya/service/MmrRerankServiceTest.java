@@ -0,0 +1,84 @@
+package io.github.avew.oya.service;
+
+import io.github.avew.oya.dto.DocumentSearchResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MmrRerankServiceTest {
+
+    private final MmrRerankService service = new MmrRerankService();
+
+    // "first" and "duplicate" point the same way; "diverse" is orthogonal but less relevant
+    private final DocumentSearchResult first = result("first", 0.90, 1f, 0f);
+    private final DocumentSearchResult duplicate = result("duplicate", 0.85, 1f, 0f);
+    private final DocumentSearchResult diverse = result("diverse", 0.60, 0f, 1f);
+    private final List<DocumentSearchResult> candidates = List.of(first, duplicate, diverse);
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(service, "enabled", true);
+        ReflectionTestUtils.setField(service, "lambda", 0.7);
+        ReflectionTestUtils.setField(service, "candidatePool", 20);
+    }
+
+    @Test
+    void prefersDiverseCandidateOverNearDuplicate() {
+        assertThat(service.rerank(candidates, 3)).containsExactly(first, diverse, duplicate);
+    }
+
+    @Test
+    void lambdaOneKeepsRelevanceOrder() {
+        ReflectionTestUtils.setField(service, "lambda", 1.0);
+
+        assertThat(service.rerank(candidates, 3)).containsExactly(first, duplicate, diverse);
+    }
+
+    @Test
+    void lambdaZeroPicksLeastRedundantRegardlessOfRelevance() {
+        ReflectionTestUtils.setField(service, "lambda", 0.0);
+        DocumentSearchResult weakDiverse = result("weak-diverse", 0.10, 0f, 1f);
+
+        assertThat(service.rerank(List.of(first, duplicate, weakDiverse), 2)).containsExactly(first, weakDiverse);
+    }
+
+    @Test
+    void honorsLimit() {
+        assertThat(service.rerank(candidates, 1)).containsExactly(first);
+        assertThat(service.rerank(candidates, 10)).hasSize(3);
+    }
+
+    @Test
+    void disabledReturnsCandidatesInOrder() {
+        ReflectionTestUtils.setField(service, "enabled", false);
+
+        assertThat(service.rerank(candidates, 2)).containsExactly(first, duplicate);
+        assertThat(service.candidatePoolSize(5)).isEqualTo(5);
+    }
+
+    @Test
+    void candidatePoolIsAtLeastLimit() {
+        assertThat(service.candidatePoolSize(5)).isEqualTo(20);
+        assertThat(service.candidatePoolSize(50)).isEqualTo(50);
+    }
+
+    @Test
+    void fallsBackToVectorSimilarityWithoutHybridScore() {
+        DocumentSearchResult vectorOnly = DocumentSearchResult.builder()
+                .searchMethod("vector-only").vectorSimilarity(0.95).embedding(new float[]{0f, 1f}).build();
+
+        assertThat(service.rerank(List.of(first, vectorOnly), 1)).containsExactly(vectorOnly);
+    }
+
+    private static DocumentSearchResult result(String name, double hybridScore, float... embedding) {
+        return DocumentSearchResult.builder()
+                .searchMethod(name)
+                .hybridScore(hybridScore)
+                .embedding(embedding)
+                .build();
+    }
+}
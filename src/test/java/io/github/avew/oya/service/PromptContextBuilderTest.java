@@ -0,0 +1,107 @@
+package io.github.avew.oya.service;
+
+import io.github.avew.oya.dto.DocumentSearchResult;
+import io.github.avew.oya.entity.Document;
+import io.github.avew.oya.entity.DocumentChunk;
+import io.github.avew.oya.util.TokenEstimator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PromptContextBuilderTest {
+
+    private final PromptContextBuilder builder = new PromptContextBuilder();
+    private final Document manual = document("manual.pdf");
+    private final Document faq = document("faq.md");
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(builder, "tokenBudget", 100);
+        ReflectionTestUtils.setField(builder, "minChunkTokens", 10);
+    }
+
+    @Test
+    void noResultsMeansNoContext() {
+        assertThat(builder.build(List.of())).isEqualTo("No relevant documents found.");
+    }
+
+    @Test
+    void truncatesTheChunkThatCrossesTheBudgetAndDropsTheRest() {
+        String first = "a".repeat(TokenEstimator.charsFor(60));
+        String second = "b".repeat(TokenEstimator.charsFor(60));
+        String third = "c".repeat(TokenEstimator.charsFor(5));
+
+        String context = builder.build(List.of(
+                result(chunk(manual, 0, first, 60)),
+                result(chunk(manual, 1, second, 60)),
+                result(chunk(faq, 0, third, 5))));
+
+        assertThat(context).contains(first);
+        assertThat(context).contains("b".repeat(TokenEstimator.charsFor(40)) + "...");
+        assertThat(context).doesNotContain("b".repeat(TokenEstimator.charsFor(40) + 1));
+        assertThat(context).doesNotContain("faq.md").doesNotContain(third);
+    }
+
+    @Test
+    void stopsWhenRemainingBudgetIsBelowMinimumChunk() {
+        String context = builder.build(List.of(
+                result(chunk(manual, 0, "x".repeat(TokenEstimator.charsFor(95)), 95)),
+                result(chunk(faq, 0, "short answer", 3))));
+
+        assertThat(context).doesNotContain("short answer");
+    }
+
+    @Test
+    void groupsByDocumentInRankOrderAndPrintsChunksInReadingOrder() {
+        String context = builder.build(List.of(
+                result(chunk(manual, 2, "manual part three", 5)),
+                result(chunk(faq, 0, "faq part one", 5)),
+                result(chunk(manual, 0, "manual part one", 5))));
+
+        assertThat(context).startsWith("Relevant documents:\nDocument 1 (manual.pdf):\n");
+        assertThat(context.indexOf("manual part one")).isLessThan(context.indexOf("manual part three"));
+        assertThat(context.indexOf("manual part three")).isLessThan(context.indexOf("Document 2 (faq.md)"));
+        assertThat(context.indexOf("Document 2 (faq.md)")).isLessThan(context.indexOf("faq part one"));
+    }
+
+    @Test
+    void estimatesTokensWhenChunkHasNoCount() {
+        // 120 estimated tokens does not fit a 100 token budget, so the chunk is cut to the budget
+        String content = "z".repeat(TokenEstimator.charsFor(120));
+
+        String context = builder.build(List.of(result(chunk(manual, 0, content, 0))));
+
+        assertThat(context).contains("z".repeat(TokenEstimator.charsFor(100)) + "...");
+        assertThat(context).doesNotContain("z".repeat(TokenEstimator.charsFor(100) + 1));
+    }
+
+    @Test
+    void tokenEstimateAndCharsForAreInverse() {
+        assertThat(TokenEstimator.estimate(null)).isZero();
+        assertThat(TokenEstimator.estimate("abcdefgh")).isEqualTo(2);
+        assertThat(TokenEstimator.estimate("x".repeat(TokenEstimator.charsFor(37)))).isEqualTo(37);
+    }
+
+    private static Document document(String filename) {
+        return Document.builder().id(UUID.randomUUID()).filename(filename).build();
+    }
+
+    private static DocumentChunk chunk(Document document, int index, String content, int tokenCount) {
+        DocumentChunk chunk = new DocumentChunk();
+        chunk.setId(UUID.randomUUID());
+        chunk.setDocument(document);
+        chunk.setChunkIndex(index);
+        chunk.setContent(content);
+        chunk.setTokenCount(tokenCount);
+        return chunk;
+    }
+
+    private static DocumentSearchResult result(DocumentChunk chunk) {
+        return DocumentSearchResult.builder().documentChunk(chunk).build();
+    }
+}
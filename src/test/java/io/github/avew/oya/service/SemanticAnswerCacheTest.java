@@ -0,0 +1,76 @@
+package io.github.avew.oya.service;
+
+import io.github.avew.oya.dto.SearchFilter;
+import io.github.avew.oya.entity.Document;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SemanticAnswerCacheTest {
+
+    private static final long GENERATION = 7L;
+    private static final float[] QUESTION = {0.3f, 0.5f, 0.8f, 0.1f};
+
+    private final SemanticAnswerCache cache = new SemanticAnswerCache(null, new SimpleMeterRegistry());
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "similarityThreshold", 0.95);
+        ReflectionTestUtils.setField(cache, "maxEntries", 100L);
+        ReflectionTestUtils.setField(cache, "ttl", Duration.ofMinutes(5));
+        ReflectionTestUtils.setField(cache, "lshBits", 8);
+        cache.init();
+    }
+
+    @Test
+    void unrestrictedSearchDoesNotShareScopeWithDefaultNamespace() {
+        String all = cache.scope(SearchFilter.none());
+        String defaultNamespace = cache.scope(SearchFilter.builder().namespace(Document.DEFAULT_NAMESPACE).build());
+
+        assertThat(all).isNotEqualTo(defaultNamespace);
+    }
+
+    @Test
+    void scopeSeparatesEveryFilterDimension() {
+        UUID documentId = UUID.randomUUID();
+        List<String> scopes = List.of(
+                cache.scope(SearchFilter.none()),
+                cache.scope(SearchFilter.builder().namespace("tenant-a").build()),
+                cache.scope(SearchFilter.builder().namespace("tenant-b").build()),
+                cache.scope(SearchFilter.builder().namespace("tenant-a").contentType("application/pdf").build()),
+                cache.scope(SearchFilter.builder().namespace("tenant-a").documentIds(List.of(documentId)).build()));
+
+        assertThat(scopes).doesNotHaveDuplicates();
+        assertThat(cache.scope(SearchFilter.builder().namespace("tenant-a").documentIds(List.of(documentId)).build()))
+                .isEqualTo(scopes.get(4));
+    }
+
+    @Test
+    void answerCachedForAllNamespacesIsNotServedToDefaultNamespace() {
+        String all = cache.scope(SearchFilter.none());
+        String defaultNamespace = cache.scope(SearchFilter.builder().namespace(Document.DEFAULT_NAMESPACE).build());
+
+        cache.put(all, QUESTION, "answer built from every tenant", List.of(), GENERATION);
+
+        assertThat(cache.lookup(defaultNamespace, QUESTION, GENERATION)).isEmpty();
+        assertThat(cache.lookup(all, QUESTION, GENERATION))
+                .hasValueSatisfying(hit -> assertThat(hit.answer()).isEqualTo("answer built from every tenant"));
+    }
+
+    @Test
+    void answerFromOlderCorpusGenerationIsNotReused() {
+        String scope = cache.scope(SearchFilter.builder().namespace("tenant-a").build());
+
+        cache.put(scope, QUESTION, "stale", List.of(), GENERATION);
+
+        assertThat(cache.lookup(scope, QUESTION, GENERATION + 1)).isEmpty();
+    }
+}
@@ -0,0 +1,75 @@
+package io.github.avew.oya.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CursorCodecTest {
+
+    @Test
+    void decodesWhatItEncodes() {
+        LocalDateTime createdAt = LocalDateTime.of(2024, 5, 1, 12, 30, 15, 123_000_000);
+        UUID id = UUID.randomUUID();
+
+        String cursor = CursorCodec.encode(0.4375, createdAt, id);
+
+        assertThat(CursorCodec.decode(cursor, 3))
+                .containsExactly("0.4375", createdAt.toString(), id.toString());
+    }
+
+    @Test
+    void cursorIsOpaqueAndUrlSafe() {
+        String cursor = CursorCodec.encode("a|b?c/d+e", "ü");
+
+        assertThat(cursor).matches("[A-Za-z0-9_-]+");
+    }
+
+    @Test
+    void keepsEmptyParts() {
+        assertThat(CursorCodec.decode(CursorCodec.encode("", "x", ""), 3)).containsExactly("", "x", "");
+    }
+
+    @Test
+    void nullOrBlankCursorMeansFirstPage() {
+        assertThat(CursorCodec.decode(null, 2)).isNull();
+        assertThat(CursorCodec.decode("  ", 2)).isNull();
+    }
+
+    @Test
+    void rejectsWrongNumberOfParts() {
+        String cursor = CursorCodec.encode("a", "b", "c");
+
+        assertThatThrownBy(() -> CursorCodec.decode(cursor, 2)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> CursorCodec.decode(cursor, 4)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void decodesCreatedAtIdCursor() {
+        LocalDateTime createdAt = LocalDateTime.of(2024, 5, 1, 12, 30, 15);
+        UUID id = UUID.randomUUID();
+
+        assertThat(CursorCodec.decodeCreatedAtId(CursorCodec.encode(createdAt, id)))
+                .containsExactly(createdAt.toString(), id.toString());
+        assertThat(CursorCodec.decodeCreatedAtId(null)).isNull();
+    }
+
+    @Test
+    void rejectsCreatedAtIdCursorWithBadParts() {
+        String badTimestamp = CursorCodec.encode("yesterday", UUID.randomUUID());
+        String badId = CursorCodec.encode(LocalDateTime.now(), "not-a-uuid");
+        String tooManyParts = CursorCodec.encode(0.5, LocalDateTime.now(), UUID.randomUUID());
+
+        assertThatThrownBy(() -> CursorCodec.decodeCreatedAtId(badTimestamp)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> CursorCodec.decodeCreatedAtId(badId)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> CursorCodec.decodeCreatedAtId(tooManyParts)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void rejectsInvalidBase64() {
+        assertThatThrownBy(() -> CursorCodec.decode("not base64!", 2)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,53 @@
+package io.github.avew.oya.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class VectorUtilsTest {
+
+    @Test
+    void formatsPgVectorLiteral() {
+        assertThat(VectorUtils.toPgVector(List.of(1.0, -0.5, 0.25))).isEqualTo("[1.0,-0.5,0.25]");
+        assertThat(VectorUtils.toPgVector(List.of())).isEqualTo("[]");
+    }
+
+    @Test
+    void parsesWhatItFormats() {
+        String literal = VectorUtils.toPgVector(List.of(0.125, -2.0, 3.5, 0.0));
+
+        assertThat(VectorUtils.parse(literal)).containsExactly(0.125f, -2.0f, 3.5f, 0.0f);
+    }
+
+    @Test
+    void parsesPostgresOutputWithSpacesAndExponents() {
+        assertThat(VectorUtils.parse("[1, 2.5e-3 ,-4]")).containsExactly(1f, 0.0025f, -4f);
+    }
+
+    @Test
+    void parseReturnsNullForMissingOrEmptyVector() {
+        assertThat(VectorUtils.parse(null)).isNull();
+        assertThat(VectorUtils.parse("")).isNull();
+        assertThat(VectorUtils.parse("[]")).isNull();
+        assertThat(VectorUtils.parse("[ ]")).isNull();
+    }
+
+    @Test
+    void cosineSimilarityOfKnownVectors() {
+        assertThat(VectorUtils.cosineSimilarity(new float[]{1, 2, 3}, new float[]{2, 4, 6})).isCloseTo(1.0, within(1e-9));
+        assertThat(VectorUtils.cosineSimilarity(new float[]{1, 0}, new float[]{0, 1})).isCloseTo(0.0, within(1e-9));
+        assertThat(VectorUtils.cosineSimilarity(new float[]{1, 0}, new float[]{-1, 0})).isCloseTo(-1.0, within(1e-9));
+        assertThat(VectorUtils.cosineSimilarity(new float[]{1, 1}, new float[]{1, 0}))
+                .isCloseTo(Math.sqrt(0.5), within(1e-6));
+    }
+
+    @Test
+    void cosineSimilarityIsZeroForUnusableInput() {
+        assertThat(VectorUtils.cosineSimilarity(null, new float[]{1})).isZero();
+        assertThat(VectorUtils.cosineSimilarity(new float[]{1, 2}, new float[]{1})).isZero();
+        assertThat(VectorUtils.cosineSimilarity(new float[]{0, 0}, new float[]{1, 1})).isZero();
+    }
+}